@@ -0,0 +1,95 @@
+package name.voided.parser;
+
+import name.voided.datatypes.Result;
+import name.voided.parser.templates.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static name.voided.parser.FluentParser.*;
+import static name.voided.parser.JsonParser.JsonNumberParser.jsonNumber;
+import static name.voided.parser.JsonParser.JsonStringParser.jsonString;
+import static name.voided.parser.JsonParser.jsonValue;
+
+/**
+ * Times the parser functions against {@link Parser#compile()} and {@link Parser#compileToBytecode()} on the {@link JsonParser} grammar.
+ * <p>
+ * Every variant runs in a JVM of its own, so none of them profits from what the JIT profiled of another.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "--enable-preview" )
+public class JsonParserBenchmark {
+    @Param( { "functions", "compile", "bytecode" } )
+    public String variant;
+
+    private String string;
+    private String numbers;
+    private String document;
+    private Parser<Character, ?> stringParser;
+    private Parser<Character, ?> numbersParser;
+    private Parser<Character, ?> valueParser;
+    private Parser<Character, ?> tapeParser;
+    private Parser<Character, ?> projectionParser;
+
+    @Setup
+    public void setUp() {
+        var text = "The quick brown fox jumps over the lazy dog, \\\"twice\\\" \\u0041\\n";
+        string = "\"" + text.repeat( 20_000 ) + "\"";
+        numbers = "-12.5e3 0 42 3.14159 1E-7 ".repeat( 40_000 );
+        var widget = "{\"widget\": {\"debug\": \"on\", \"window\": {\"title\": \"Sample Konfabulator Widget\", \"width\": 500, \"height\": 500}, "
+                + "\"image\": {\"src\": \"Images/Sun.png\", \"hOffset\": 250, \"alignment\": \"center\"}, \"tags\": [1, 2.5, true, false, null]}}";
+        document = "[" + String.join( ", ", Collections.nCopies( 500, widget ) ) + "]";
+
+        stringParser = variant( jsonString() );
+        numbersParser = variant( many( jsonNumber().andThenDiscardingThen( optional( whiteSpaces() ) ) ) );
+        valueParser = variant( jsonValue() );
+        tapeParser = variant( JsonTape.jsonTape() );
+        projectionParser = variant( JsonProjection.jsonProjection( "$[3].widget.window.width", "$[499].widget.tags" ) );
+    }
+
+    @Benchmark
+    public Object jsonStrings() {
+        return parse( stringParser, string );
+    }
+
+    @Benchmark
+    public Object jsonNumbers() {
+        return parse( numbersParser, numbers );
+    }
+
+    @Benchmark
+    public Object jsonValues() {
+        return parse( valueParser, document );
+    }
+
+    @Benchmark
+    public Object jsonTape() {
+        return parse( tapeParser, document );
+    }
+
+    @Benchmark
+    public Object projection() {
+        return parse( projectionParser, document );
+    }
+
+    private <T> Parser<Character, T> variant( Parser<Character, T> parser ) {
+        return switch ( variant ) {
+            case "functions" -> parser;
+            case "compile" -> parser.compile();
+            case "bytecode" -> parser.compileToBytecode();
+            default -> throw new IllegalArgumentException( "Unknown variant " + variant + ", expected functions, compile or bytecode" );
+        };
+    }
+
+    private static Object parse( Parser<Character, ?> parser, String input ) {
+        return switch ( parser.parse( toStepper( input ) ) ) {
+            case Result.Success<?, ?> success -> success.value();
+            case Result.Failure<?, ?> failure -> throw new IllegalStateException( parser.label + " failed: " + failure.value() );
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package name.voided.datatypes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An {@link IStepper} over the bytes of a {@link ByteBuffer}, for grammars reading encoded input without decoding it first.
+ * <p>
+ * Like {@link CharSequenceStepper} the stepper is just an index into the shared buffer, and {@link Byte}s are cached by the JDK, so stepping boxes nothing.
+ * Positions count lines by the line break byte and columns in UTF-8 characters, skipping continuation bytes.
+ */
+final public class ByteBufferStepper implements IStepper<Byte> {
+    private final Input input;
+    private final int offset;
+
+    /**
+     * Steps over the remaining bytes of the buffer, without moving its position.
+     */
+    public ByteBufferStepper( ByteBuffer bytes, byte lineBreak ) {
+        this( new Input( bytes.slice(), lineBreak ), 0 );
+    }
+
+    public ByteBufferStepper( byte[] bytes, byte lineBreak ) {
+        this( ByteBuffer.wrap( bytes ), lineBreak );
+    }
+
+    private ByteBufferStepper( Input input, int offset ) {
+        this.input = input;
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean canStep() {
+        return offset + 1 < input.length;
+    }
+
+    @Override
+    public boolean hasContent() {
+        return offset < input.length;
+    }
+
+    @Override
+    public Byte get() {
+        return hasContent() ? input.bytes.get( offset ) : null;
+    }
+
+    /**
+     * The current byte without boxing it, only valid if {@link #hasContent()}.
+     */
+    public byte getByte() {
+        return input.bytes.get( offset );
+    }
+
+    /**
+     * The character starting at the current byte, decoded from UTF-8, only valid if {@link #hasContent()}.
+     */
+    public int getCodePoint() {
+        return codePointAt( input.bytes, offset );
+    }
+
+    /**
+     * The character whose UTF-8 encoding starts at index, U+FFFD if the bytes there don't encode one.
+     */
+    public static int codePointAt( ByteBuffer bytes, int index ) {
+        var lead = bytes.get( index ) & 0xFF;
+        if ( lead < 0x80 ) return lead;
+        var length = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 0;
+        if ( length == 0 || index + length > bytes.limit() ) return 0xFFFD;
+        var codePoint = lead & 0x7F >> length;
+        for ( var i = 1; i < length; i++ ) {
+            var b = bytes.get( index + i ) & 0xFF;
+            if ( ( b & 0xC0 ) != 0x80 ) return 0xFFFD;
+            codePoint = codePoint << 6 | b & 0x3F;
+        }
+        return codePoint;
+    }
+
+    @Override
+    public Position getPosition() {
+        return input.positionOf( offset );
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        return input.context;
+    }
+
+    /**
+     * The bytes stepped over, offsets of steppers index into it.
+     */
+    public ByteBuffer getBytes() {
+        return input.bytes;
+    }
+
+    @Override
+    public ByteBufferStepper step() {
+        if ( !hasContent() ) return this;
+        return new ByteBufferStepper( input, offset + 1 );
+    }
+
+    /**
+     * Returns a stepper on the same input at the given offset.
+     */
+    public ByteBufferStepper at( int offset ) {
+        if ( offset == this.offset ) return this;
+        if ( offset < 0 || offset > input.length ) throw new IndexOutOfBoundsException( offset );
+        return new ByteBufferStepper( input, offset );
+    }
+
+    /**
+     * The input shared by all steppers of one parse. Line starts are indexed lazily,
+     * only as far as the furthest position anybody asked for.
+     */
+    private static final class Input {
+        private final ByteBuffer bytes;
+        private final int length;
+        private final byte lineBreak;
+        private final ParseContext context = new ParseContext();
+        private int[] lineStarts = new int[]{ 0 };
+        private int lines = 1;
+        private int scanned = 0;
+
+        private Input( ByteBuffer bytes, byte lineBreak ) {
+            this.bytes = bytes;
+            this.length = bytes.limit();
+            this.lineBreak = lineBreak;
+        }
+
+        private Position positionOf( int offset ) {
+            for ( ; scanned < offset; scanned++ ) {
+                if ( bytes.get( scanned ) != lineBreak ) continue;
+                if ( lines == lineStarts.length ) lineStarts = Arrays.copyOf( lineStarts, lines * 2 );
+                lineStarts[lines++] = scanned + 1;
+            }
+
+            var line = Arrays.binarySearch( lineStarts, 0, lines, offset );
+            if ( line < 0 ) line = -line - 2;
+            var column = 0;
+            for ( var i = lineStarts[line]; i < offset; i++ ) {
+                if ( ( bytes.get( i ) & 0xC0 ) != 0x80 ) column++;
+            }
+            return new Position( line, column );
+        }
+    }
+}
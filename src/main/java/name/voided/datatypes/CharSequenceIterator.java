@@ -0,0 +1,13 @@
+package name.voided.datatypes;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over characters that are in memory as a whole, so a parse can read them as text rather than one by one.
+ */
+public interface CharSequenceIterator extends Iterator<Character> {
+    /**
+     * The characters still to be returned.
+     */
+    CharSequence remaining();
+}
@@ -0,0 +1,116 @@
+package name.voided.datatypes;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * An {@link IStepper} over an in-memory {@link CharSequence}.
+ * <p>
+ * Unlike {@link ImmutableStepper} the stepper is nothing more than an index into the shared input,
+ * stepping doesn't pull from an iterator and the {@link Position} is only computed when asked for.
+ */
+final public class CharSequenceStepper implements IStepper<Character> {
+    private final Input input;
+    private final int offset;
+
+    public CharSequenceStepper( CharSequence text, char lineBreak ) {
+        this( new Input( text, lineBreak ), 0 );
+    }
+
+    public CharSequenceStepper( char[] text, char lineBreak ) {
+        this( CharBuffer.wrap( text ), lineBreak );
+    }
+
+    private CharSequenceStepper( Input input, int offset ) {
+        this.input = input;
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean canStep() {
+        return offset + 1 < input.length;
+    }
+
+    @Override
+    public boolean hasContent() {
+        return offset < input.length;
+    }
+
+    @Override
+    public Character get() {
+        return hasContent() ? input.text.charAt( offset ) : null;
+    }
+
+    /**
+     * The current character without boxing it, only valid if {@link #hasContent()}.
+     */
+    public char getChar() {
+        return input.text.charAt( offset );
+    }
+
+    @Override
+    public Position getPosition() {
+        return input.positionOf( offset );
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        return input.context;
+    }
+
+    public CharSequence getText() {
+        return input.text;
+    }
+
+    @Override
+    public CharSequenceStepper step() {
+        if ( !hasContent() ) return this;
+        return new CharSequenceStepper( input, offset + 1 );
+    }
+
+    /**
+     * Returns a stepper on the same input at the given offset.
+     */
+    public CharSequenceStepper at( int offset ) {
+        if ( offset == this.offset ) return this;
+        if ( offset < 0 || offset > input.length ) throw new IndexOutOfBoundsException( offset );
+        return new CharSequenceStepper( input, offset );
+    }
+
+    /**
+     * The input shared by all steppers of one parse. Line starts are indexed lazily,
+     * only as far as the furthest position anybody asked for.
+     */
+    private static final class Input {
+        private final CharSequence text;
+        private final int length;
+        private final char lineBreak;
+        private final ParseContext context = new ParseContext();
+        private int[] lineStarts = new int[]{ 0 };
+        private int lines = 1;
+        private int scanned = 0;
+
+        private Input( CharSequence text, char lineBreak ) {
+            this.text = text;
+            this.length = text.length();
+            this.lineBreak = lineBreak;
+        }
+
+        private Position positionOf( int offset ) {
+            for ( ; scanned < offset; scanned++ ) {
+                if ( text.charAt( scanned ) != lineBreak ) continue;
+                if ( lines == lineStarts.length ) lineStarts = Arrays.copyOf( lineStarts, lines * 2 );
+                lineStarts[lines++] = scanned + 1;
+            }
+
+            var line = Arrays.binarySearch( lineStarts, 0, lines, offset );
+            if ( line < 0 ) line = -line - 2;
+            return new Position( line, offset - lineStarts[line] );
+        }
+    }
+}
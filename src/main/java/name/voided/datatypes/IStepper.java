@@ -34,5 +34,15 @@ public interface IStepper<E> {
 
     Position getPosition();
 
+    /**
+     * Number of steps taken from the start of the input, i.e. the index of the current element.
+     */
+    long getOffset();
+
+    /**
+     * The state of the run this stepper belongs to, the same for every stepper stepped to from it.
+     */
+    ParseContext getContext();
+
     IStepper<E> step();
 }
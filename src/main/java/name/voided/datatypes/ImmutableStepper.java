@@ -2,34 +2,43 @@ package name.voided.datatypes;
 
 import java.util.Iterator;
 
+/**
+ * An {@link IStepper} pulling its elements from an iterator as far as the parse gets.
+ * <p>
+ * What was pulled is kept by a {@link ResettableIterator} shared by all steppers of the run, so backtracking reads it again from there.
+ * The run holds a mark at the offset it committed to (see {@link ParseContext#commit}), moving it along with the commits:
+ * elements before it are dropped as new ones come in, so a parse cutting as it goes holds only what it may still go back to,
+ * no matter how long the input is or who still holds the first stepper.
+ * Stepping from a stepper before the committed offset fails with an {@link IllegalStateException}.
+ * <p>
+ * An iterator that is a {@link ResettableIterator} already is used as it is, starting from where it is, marks made on it before stay intact.
+ * When a run ends it is left where the rest of the input starts, for whoever reads it next.
+ * The mark stays where the runs committed to, so the steppers can be parsed again as long as no run cut past them.
+ */
 final public class ImmutableStepper<E> implements IStepper<E> {
-    private final Iterator<E> iter;
+    private final Input<E> input;
     private final E current;
     private final boolean hasContent;
-    private ImmutableStepper<E> step;
-    private final E lineBreak;
     private final Position position;
+    private final long offset;
 
     public ImmutableStepper( Iterator<E> iter, E lineBreak ) {
-        this( iter, lineBreak, new Position( 0, 0 ) );
+        this( new Input<>( iter, lineBreak ), new Position( 0, 0 ), 0 );
     }
 
-    private ImmutableStepper( Iterator<E> iter, E lineBreak, Position position ) {
-        this.iter = iter;
-        if ( iter.hasNext() ) {
-            current = iter.next();
-            hasContent = true;
-        } else {
-            current = null;
-            hasContent = false;
-        }
+    @SuppressWarnings( "unchecked" )
+    private ImmutableStepper( Input<E> input, Position position, long offset ) {
+        var element = input.elementAt( offset );
+        this.input = input;
+        this.hasContent = element != Input.END;
+        this.current = hasContent ? ( E ) element : null;
         this.position = position;
-        this.lineBreak = lineBreak;
+        this.offset = offset;
     }
 
     @Override
     public boolean canStep() {
-        return step != null || iter.hasNext();
+        return hasContent && input.elementAt( offset + 1 ) != Input.END;
     }
 
     @Override
@@ -47,15 +56,64 @@ final public class ImmutableStepper<E> implements IStepper<E> {
         return position;
     }
 
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        return input.context;
+    }
+
     @Override
     public ImmutableStepper<E> step() {
-        if ( step == null && !hasContent ) return this;
-        if ( step == null ) {
-            if ( get().equals( lineBreak ) )
-                step = new ImmutableStepper<E>( iter, lineBreak, position.incrementLine() );
-            else
-                step = new ImmutableStepper<E>( iter, lineBreak, position.incrementColumn() );
+        if ( !hasContent ) return this;
+        if ( current.equals( input.lineBreak ) )
+            return new ImmutableStepper<>( input, position.incrementLine(), offset + 1 );
+        return new ImmutableStepper<>( input, position.incrementColumn(), offset + 1 );
+    }
+
+    /**
+     * The elements of the run, offsets of steppers count from the position the iterator was at when the run started.
+     */
+    private static final class Input<E> {
+        private static final Object END = new Object();
+
+        private final ResettableIterator<E> elements;
+        private final E lineBreak;
+        private final ParseContext context = new ParseContext();
+        private final long base;
+        private long mark;
+
+        private Input( Iterator<E> iter, E lineBreak ) {
+            this.elements = iter instanceof ResettableIterator<E> resettable ? resettable : ResettableIteratorDecorator.keepingMarked( iter );
+            this.lineBreak = lineBreak;
+            this.base = elements.mark();
+            this.mark = base;
+            context.onFinish( this::finish );
+        }
+
+        /**
+         * The element at offset, or {@link #END} past the last one.
+         */
+        private Object elementAt( long offset ) {
+            var committed = base + context.committedOffset();
+            if ( committed > mark ) {
+                elements.release( mark );
+                elements.reset( committed );
+                mark = elements.mark();
+            }
+            if ( base + offset < mark )
+                throw new IllegalStateException( "Input before offset " + ( mark - base ) + " was released, a run committed to it" );
+
+            elements.reset( base + offset );
+            return elements.hasNext() ? elements.next() : END;
+        }
+
+        // leaves the elements where the rest starts, for whoever reads them next, a run that went wrong before its mark at the mark
+        private void finish( long offset ) {
+            elements.reset( Math.max( base + offset, mark ) );
         }
-        return step;
     }
 }
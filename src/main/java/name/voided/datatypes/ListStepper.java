@@ -0,0 +1,75 @@
+package name.voided.datatypes;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * An {@link IStepper} over the elements of a list, for parsing what an earlier pass produced, like tokens.
+ * <p>
+ * Positions are looked up by index, so elements can report where they came from in the original input.
+ */
+final public class ListStepper<E> implements IStepper<E> {
+    private final Input<E> input;
+    private final int offset;
+
+    /**
+     * Positions are the index of the element on line 0.
+     */
+    public ListStepper( List<E> elements ) {
+        this( elements, index -> new Position( 0, index ) );
+    }
+
+    /**
+     * positions gives the position of the element at an index, or of the end of the input for the size of the list.
+     */
+    public ListStepper( List<E> elements, IntFunction<Position> positions ) {
+        this( new Input<>( elements, positions ), 0 );
+    }
+
+    private ListStepper( Input<E> input, int offset ) {
+        this.input = input;
+        this.offset = offset;
+    }
+
+    @Override
+    public boolean canStep() {
+        return offset + 1 < input.elements.size();
+    }
+
+    @Override
+    public boolean hasContent() {
+        return offset < input.elements.size();
+    }
+
+    @Override
+    public E get() {
+        return hasContent() ? input.elements.get( offset ) : null;
+    }
+
+    @Override
+    public Position getPosition() {
+        return input.positions.apply( offset );
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        return input.context;
+    }
+
+    @Override
+    public ListStepper<E> step() {
+        if ( !hasContent() ) return this;
+        return new ListStepper<>( input, offset + 1 );
+    }
+
+    private record Input<E>(List<E> elements, IntFunction<Position> positions, ParseContext context) {
+        private Input( List<E> elements, IntFunction<Position> positions ) {
+            this( elements, positions, new ParseContext() );
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package name.voided.datatypes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An {@link IStepper} over the characters of a UTF-8 encoded file, read through a memory mapping of the file.
+ * <p>
+ * Nothing is read up front: characters are decoded from the mapped bytes when a stepper is asked for them,
+ * so parsing starts right away and the file is never copied onto the heap.
+ * Only a few windows of the file are mapped at a time, a new one where the parse leaves them, so files can be larger than a single mapping.
+ * <p>
+ * Malformed bytes read as U+FFFD, characters outside the basic plane as two surrogates like in a {@link String}.
+ */
+final public class MappedFileStepper implements IStepper<Character> {
+    /**
+     * How much of the file is mapped at once by default.
+     */
+    public static final int DEFAULT_WINDOW = 1 << 30;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final Input input;
+    private final long byteOffset;
+    private final long offset;
+    private final boolean lowSurrogate;
+    private final int line;
+    private final int column;
+    // the code point at byteOffset and the number of bytes it takes, decoded when first needed
+    private int codePoint = -1;
+    private int width;
+
+    public MappedFileStepper( Path file, char lineBreak ) throws IOException {
+        this( file, lineBreak, DEFAULT_WINDOW );
+    }
+
+    /**
+     * window is the number of bytes mapped at a time, at least 4.
+     */
+    public MappedFileStepper( Path file, char lineBreak, int window ) throws IOException {
+        this( new Input( file, lineBreak, window ), 0, 0, false, 0, 0 );
+    }
+
+    private MappedFileStepper( Input input, long byteOffset, long offset, boolean lowSurrogate, int line, int column ) {
+        this.input = input;
+        this.byteOffset = byteOffset;
+        this.offset = offset;
+        this.lowSurrogate = lowSurrogate;
+        this.line = line;
+        this.column = column;
+    }
+
+    @Override
+    public boolean canStep() {
+        if ( !hasContent() ) return false;
+        decode();
+        return byteOffset + width < input.size || ( Character.isSupplementaryCodePoint( codePoint ) && !lowSurrogate );
+    }
+
+    @Override
+    public boolean hasContent() {
+        return byteOffset < input.size;
+    }
+
+    @Override
+    public Character get() {
+        return hasContent() ? getChar() : null;
+    }
+
+    /**
+     * The current character without boxing it, only valid if {@link #hasContent()}.
+     */
+    public char getChar() {
+        decode();
+        if ( !Character.isSupplementaryCodePoint( codePoint ) ) return ( char ) codePoint;
+        return lowSurrogate ? Character.lowSurrogate( codePoint ) : Character.highSurrogate( codePoint );
+    }
+
+    @Override
+    public Position getPosition() {
+        return new Position( line, column );
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        return input.context;
+    }
+
+    @Override
+    public MappedFileStepper step() {
+        if ( !hasContent() ) return this;
+        var c = getChar();
+        var line = c == input.lineBreak ? this.line + 1 : this.line;
+        var column = c == input.lineBreak ? 0 : this.column + 1;
+        if ( Character.isHighSurrogate( c ) && Character.isSupplementaryCodePoint( codePoint ) )
+            return new MappedFileStepper( input, byteOffset, offset + 1, true, line, column );
+        return new MappedFileStepper( input, byteOffset + width, offset + 1, false, line, column );
+    }
+
+    /**
+     * Whether the file is held open, it is from when a window is mapped during a run until the run ends.
+     */
+    boolean isFileOpen() {
+        return input.channel != null;
+    }
+
+    private void decode() {
+        if ( codePoint >= 0 ) return;
+        var lead = input.byteAt( byteOffset ) & 0xFF;
+        if ( lead < 0x80 ) {
+            set( lead, 1 );
+            return;
+        }
+
+        int length, min, value;
+        if ( lead >= 0xC2 && lead <= 0xDF ) {
+            length = 2;
+            min = 0x80;
+            value = lead & 0x1F;
+        } else if ( lead >= 0xE0 && lead <= 0xEF ) {
+            length = 3;
+            min = 0x800;
+            value = lead & 0x0F;
+        } else if ( lead >= 0xF0 && lead <= 0xF4 ) {
+            length = 4;
+            min = 0x10000;
+            value = lead & 0x07;
+        } else {
+            set( REPLACEMENT, 1 );
+            return;
+        }
+
+        if ( byteOffset + length > input.size ) {
+            set( REPLACEMENT, 1 );
+            return;
+        }
+        for ( var i = 1; i < length; i++ ) {
+            var next = input.byteAt( byteOffset + i ) & 0xFF;
+            if ( ( next & 0xC0 ) != 0x80 ) {
+                set( REPLACEMENT, 1 );
+                return;
+            }
+            value = value << 6 | next & 0x3F;
+        }
+        if ( value < min || value > Character.MAX_CODE_POINT || value >= 0xD800 && value <= 0xDFFF ) set( REPLACEMENT, 1 );
+        else set( value, length );
+    }
+
+    private void set( int codePoint, int width ) {
+        this.codePoint = codePoint;
+        this.width = width;
+    }
+
+    /**
+     * The file shared by all steppers of one parse, with the windows of it that are mapped.
+     * <p>
+     * The last few windows used stay mapped, most recently used first, so steppers reading distant parts of the file in turn
+     * don't map a window on every character. The file is opened when a window has to be mapped and stays open until the run ends,
+     * a mapping stays valid after its channel is closed.
+     */
+    private static final class Input {
+        private static final int WINDOWS = 4;
+
+        private final Path file;
+        private final long size;
+        private final char lineBreak;
+        private final int window;
+        private final ParseContext context = new ParseContext();
+        private final MappedByteBuffer[] windows = new MappedByteBuffer[WINDOWS];
+        private final long[] starts = new long[WINDOWS];
+        private final long[] ends = new long[WINDOWS];
+        private int mappedWindows;
+        // the window used last
+        private MappedByteBuffer mapped;
+        private long mappedStart;
+        private long mappedEnd;
+        private FileChannel channel;
+
+        private Input( Path file, char lineBreak, int window ) throws IOException {
+            if ( window < 4 ) throw new IllegalArgumentException( "A window of " + window + " bytes can't hold a character" );
+            this.file = file;
+            this.lineBreak = lineBreak;
+            this.window = window;
+            try ( var channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+                this.size = channel.size();
+                map( channel, 0 );
+            }
+            context.onFinish( offset -> close() );
+        }
+
+        private byte byteAt( long at ) {
+            if ( at < mappedStart || at >= mappedEnd ) remap( at );
+            return mapped.get( ( int ) ( at - mappedStart ) );
+        }
+
+        private void remap( long at ) {
+            for ( var i = 1; i < mappedWindows; i++ ) {
+                if ( at >= starts[i] && at < ends[i] ) {
+                    use( i );
+                    return;
+                }
+            }
+            try {
+                if ( channel == null ) channel = FileChannel.open( file, StandardOpenOption.READ );
+                // keep a bit of what comes before mapped as well, the parse may backtrack into it
+                map( channel, Math.max( 0, Math.min( at - window / 4, size - window ) ) );
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        /**
+         * Maps a window from start in front of the others, letting go of the one used longest ago if they are all taken.
+         */
+        private void map( FileChannel channel, long start ) throws IOException {
+            var end = Math.min( size, start + window );
+            var buffer = channel.map( FileChannel.MapMode.READ_ONLY, start, end - start );
+            if ( mappedWindows < WINDOWS ) mappedWindows++;
+            windows[mappedWindows - 1] = buffer;
+            starts[mappedWindows - 1] = start;
+            ends[mappedWindows - 1] = end;
+            use( mappedWindows - 1 );
+        }
+
+        // moves window i to the front
+        private void use( int i ) {
+            var buffer = windows[i];
+            var start = starts[i];
+            var end = ends[i];
+            System.arraycopy( windows, 0, windows, 1, i );
+            System.arraycopy( starts, 0, starts, 1, i );
+            System.arraycopy( ends, 0, ends, 1, i );
+            windows[0] = mapped = buffer;
+            starts[0] = mappedStart = start;
+            ends[0] = mappedEnd = end;
+        }
+
+        private void close() {
+            if ( channel == null ) return;
+            try {
+                channel.close();
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            } finally {
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package name.voided.datatypes;
+
+import java.util.Arrays;
+
+/**
+ * Results of parsers by (parser id, input offset), for packrat parsing.
+ * <p>
+ * Open addressing over plain arrays, so a lookup doesn't allocate a key.
+ * The table holds at most {@code limit} entries: when it is full, entries behind the committed offset are dropped first,
+ * then, if that didn't free a quarter of the table, the entries at the lowest offsets until half of it is left,
+ * however the offsets cluster, so the next eviction is always half the limit of inserts away.
+ */
+final public class MemoTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int limit;
+    private int[] ids;
+    private long[] offsets;
+    private Object[] values;
+    private int size = 0;
+    private long committed = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public MemoTable( int limit ) {
+        if ( limit < 1 ) throw new IllegalArgumentException( "limit must be positive, was " + limit );
+        this.limit = limit;
+        allocate( Math.min( INITIAL_CAPACITY, capacityFor( limit ) ) );
+    }
+
+    public Object get( int id, long offset ) {
+        var mask = values.length - 1;
+        for ( var slot = slot( id, offset, mask ); values[slot] != null; slot = ( slot + 1 ) & mask ) {
+            if ( ids[slot] == id && offsets[slot] == offset ) {
+                hits++;
+                return values[slot];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public void put( int id, long offset, Object value ) {
+        if ( offset < committed ) return;
+        if ( size >= limit ) evict();
+        else if ( size * 2 >= values.length ) rehash( values.length * 2, Long.MIN_VALUE, 0 );
+        insert( id, offset, value );
+    }
+
+    /**
+     * Declares that no parser will look at anything before offset anymore.
+     */
+    public void commit( long offset ) {
+        committed = Math.max( committed, offset );
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    private void evict() {
+        var before = size;
+        rehash( values.length, committed, 0 );
+        if ( size >= limit - limit / 4 ) {
+            var live = new long[size];
+            var count = 0;
+            for ( var i = 0; i < values.length; i++ ) {
+                if ( values[i] != null ) live[count++] = offsets[i];
+            }
+            Arrays.sort( live );
+            var dropped = size - limit / 2;
+            if ( dropped == size ) {
+                rehash( values.length, Long.MAX_VALUE, 0 );
+            } else {
+                // the lowest offset kept, some entries at it may go too
+                var keepFrom = live[dropped];
+                var first = dropped;
+                while ( first > 0 && live[first - 1] == keepFrom ) first--;
+                rehash( values.length, keepFrom, dropped - first );
+            }
+        }
+        evictions += before - size;
+    }
+
+    /**
+     * Reinserts the entries at keepFrom and after into a table of capacity, but for the first dropAtKeepFrom at keepFrom itself.
+     */
+    private void rehash( int capacity, long keepFrom, int dropAtKeepFrom ) {
+        var oldIds = ids;
+        var oldOffsets = offsets;
+        var oldValues = values;
+        allocate( capacity );
+        for ( var i = 0; i < oldValues.length; i++ ) {
+            if ( oldValues[i] == null || oldOffsets[i] < keepFrom ) continue;
+            if ( oldOffsets[i] == keepFrom && dropAtKeepFrom > 0 ) {
+                dropAtKeepFrom--;
+                continue;
+            }
+            insert( oldIds[i], oldOffsets[i], oldValues[i] );
+        }
+    }
+
+    private void insert( int id, long offset, Object value ) {
+        var mask = values.length - 1;
+        var slot = slot( id, offset, mask );
+        for ( ; values[slot] != null; slot = ( slot + 1 ) & mask ) {
+            if ( ids[slot] == id && offsets[slot] == offset ) {
+                values[slot] = value;
+                return;
+            }
+        }
+        ids[slot] = id;
+        offsets[slot] = offset;
+        values[slot] = value;
+        size++;
+    }
+
+    private void allocate( int capacity ) {
+        ids = new int[capacity];
+        offsets = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+    }
+
+    private static int capacityFor( int limit ) {
+        return Integer.highestOneBit( Math.max( 1, limit - 1 ) ) << 2;
+    }
+
+    private static int slot( int id, long offset, int mask ) {
+        var h = offset * 0x9E3779B97F4A7C15L + id;
+        return ( int ) ( h ^ ( h >>> 29 ) ) & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoTable{" + "size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + '}';
+    }
+}
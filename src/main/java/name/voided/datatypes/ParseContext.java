@@ -0,0 +1,148 @@
+package name.voided.datatypes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * State belonging to a single run over an input, shared by all steppers on that input.
+ * <p>
+ * A run is a parse started from outside any other parse on the input, see {@link name.voided.parser.templates.Parser#parse}.
+ * Once it is over the state is cleared, so the next run on the same steppers starts afresh,
+ * but for the memo table, which is kept for its statistics until the next run starts.
+ */
+final public class ParseContext {
+    public static final int DEFAULT_MEMO_LIMIT = 1 << 20;
+
+    private int memoLimit = DEFAULT_MEMO_LIMIT;
+    private MemoTable memo;
+    private long committed = 0;
+    private boolean running = false;
+    private LongConsumer finished;
+
+    private IStepper<?> farthest;
+    private String[] expected = new String[8];
+    private int expectedCount = 0;
+
+    /**
+     * Whether a run is going on, so a parse started now is part of it rather than a run of its own.
+     */
+    public boolean running() {
+        return running;
+    }
+
+    public void start() {
+        running = true;
+        memo = null;
+    }
+
+    /**
+     * Ends the run at offset, where the rest of the input starts, forgetting its commits and its expectations.
+     */
+    public void finish( long offset ) {
+        running = false;
+        committed = 0;
+        farthest = null;
+        expectedCount = 0;
+        if ( finished != null ) finished.accept( offset );
+    }
+
+    /**
+     * Has every run end by telling listener the offset it ended at, for inputs holding on to what a run could go back to.
+     */
+    public void onFinish( LongConsumer listener ) {
+        finished = listener;
+    }
+
+    /**
+     * The packrat memo table of this run, created on first use, or of the last run once it is over.
+     */
+    public MemoTable memo() {
+        if ( memo == null ) {
+            memo = new MemoTable( memoLimit );
+            memo.commit( committed );
+        }
+        return memo;
+    }
+
+    /**
+     * Bounds the number of memoized results, has to be set before the first memoized parser of a run runs.
+     */
+    public ParseContext withMemoLimit( int limit ) {
+        if ( running && memo != null ) throw new IllegalStateException( "memo table is already in use" );
+        memoLimit = limit;
+        return this;
+    }
+
+    /**
+     * Declares that nothing before offset will be parsed again, see {@link name.voided.parser.templates.Parser#cut()}.
+     */
+    public void commit( long offset ) {
+        committed = Math.max( committed, offset );
+        if ( memo != null ) memo.commit( committed );
+    }
+
+    public long committedOffset() {
+        return committed;
+    }
+
+    /**
+     * Whether the run committed past offset, so nothing may go back there to try something else.
+     */
+    public boolean committedPast( long offset ) {
+        return committed > offset;
+    }
+
+    /**
+     * The number of expectations recorded so far at offset, to be passed to {@link #expect} by a parser starting there.
+     */
+    public int expectationMark( long offset ) {
+        return farthest != null && farthest.getOffset() == offset ? expectedCount : 0;
+    }
+
+    /**
+     * Records that something labelled label was expected at the stepper.
+     * <p>
+     * Only the farthest offset any parser failed at is kept. Expectations at that offset recorded after mark are replaced,
+     * so a labelled parser failing without consuming input stands in for whatever it tried inside.
+     * A null label only moves the farthest offset.
+     */
+    public void expect( IStepper<?> at, String label, int mark ) {
+        var offset = at.getOffset();
+        if ( farthest == null || offset > farthest.getOffset() ) {
+            farthest = at;
+            expectedCount = 0;
+        } else if ( offset == farthest.getOffset() ) {
+            expectedCount = Math.min( expectedCount, mark );
+        } else return;
+
+        if ( label == null ) return;
+        for ( var i = 0; i < expectedCount; i++ ) {
+            if ( expected[i].equals( label ) ) return;
+        }
+        if ( expectedCount == expected.length ) expected = Arrays.copyOf( expected, expectedCount * 2 );
+        expected[expectedCount++] = label;
+    }
+
+    /**
+     * Records an expectation at the stepper in addition to the ones already there.
+     */
+    public void expect( IStepper<?> at, String label ) {
+        expect( at, label, Integer.MAX_VALUE );
+    }
+
+    /**
+     * The stepper at the farthest offset any parser failed at, null if nothing failed yet.
+     */
+    public IStepper<?> farthestFailure() {
+        return farthest;
+    }
+
+    public long farthestOffset() {
+        return farthest == null ? -1 : farthest.getOffset();
+    }
+
+    public List<String> expected() {
+        return List.of( Arrays.copyOf( expected, expectedCount ) );
+    }
+}
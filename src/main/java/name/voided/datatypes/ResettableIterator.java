@@ -2,8 +2,35 @@ package name.voided.datatypes;
 
 import java.util.Iterator;
 
+/**
+ * An iterator that can go back to positions it marked.
+ * <p>
+ * Positions count the elements returned since the iterator was created. Marks nest:
+ * releasing a mark releases the marks made after it as well, and nothing before the oldest mark still held can be gone back to.
+ */
 public interface ResettableIterator<T> extends Iterator<T> {
+    /**
+     * Marks the current position, returns it for {@link #reset(long)} and {@link #release(long)}.
+     */
+    long mark();
+
+    /**
+     * Goes back, or forward again, to a position between the oldest mark still held and the farthest position reached.
+     */
+    void reset( long position );
+
+    /**
+     * Gives up the mark and every mark made after it.
+     */
+    void release( long mark );
+
+    /**
+     * Goes back to where the iterator was created or last cleared, or to the oldest mark still held if it isn't kept from there.
+     */
     void reset();
 
+    /**
+     * Releases all marks, {@link #reset()} goes back to here from now on.
+     */
     void clearBuffer();
 }
@@ -1,41 +1,124 @@
 package name.voided.datatypes;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
+/**
+ * Makes an iterator resettable by keeping what it returned in a ring buffer, growing as needed.
+ * <p>
+ * Going back and replaying is constant time per element. The buffer holds the elements from where the decorator was created,
+ * or last cleared, so {@link #reset()} can go back there. One made by {@link #keepingMarked} only holds them from the oldest mark still held,
+ * or from the current position if there is none: older ones are dropped as new elements are pulled from the source.
+ */
 final public class ResettableIteratorDecorator<T> implements ResettableIterator<T> {
     private final Iterator<T> source;
-    private final LinkedList<T> past = new LinkedList<>();
-    private int position = 0;
+    private Object[] buffer = new Object[16];
+    private int head = 0;
+    private int size = 0;
+    // the position of the element at head
+    private long start = 0;
+    private long position = 0;
+    private long[] marks = new long[8];
+    private int markCount = 0;
+    // where reset() goes back to, -1 if only the marks keep elements
+    private long origin;
 
     public ResettableIteratorDecorator( Iterator<T> source ) {
+        this( source, 0 );
+    }
+
+    private ResettableIteratorDecorator( Iterator<T> source, long origin ) {
         this.source = source;
+        this.origin = origin;
+    }
+
+    /**
+     * A decorator keeping the elements only as long as a mark needs them, for users marking what they may go back to.
+     */
+    public static <T> ResettableIteratorDecorator<T> keepingMarked( Iterator<T> source ) {
+        return new ResettableIteratorDecorator<>( source, -1 );
+    }
+
+    @Override
+    public long mark() {
+        if ( markCount == marks.length ) marks = Arrays.copyOf( marks, markCount * 2 );
+        marks[markCount++] = position;
+        return position;
+    }
+
+    @Override
+    public void reset( long position ) {
+        var oldest = origin >= 0 ? origin : markCount > 0 ? marks[0] : start;
+        if ( position < oldest || position > start + size )
+            throw new IllegalArgumentException( "Can't reset to " + position + ", only to " + oldest + " up to " + ( start + size ) );
+        this.position = position;
     }
 
+    @Override
+    public void release( long mark ) {
+        for ( var i = markCount - 1; i >= 0; i-- ) {
+            if ( marks[i] == mark ) {
+                markCount = i;
+                return;
+            }
+        }
+        throw new IllegalArgumentException( "No mark held at " + mark );
+    }
+
+    @Override
     public void reset() {
-        position = 0;
+        if ( origin >= 0 ) position = origin;
+        else if ( markCount > 0 ) position = marks[0];
     }
 
     @Override
     public void clearBuffer() {
-        past.clear();
-        position = 0;
+        markCount = 0;
+        if ( origin >= 0 ) origin = position;
+        drop( position );
     }
 
     @Override
     public boolean hasNext() {
-        return ( position < past.size() )
-                || source.hasNext();
+        return position < start + size || source.hasNext();
     }
 
     @Override
+    @SuppressWarnings( "unchecked" )
     public T next() {
-        if ( position < past.size() )
-            return past.get( position++ );
+        if ( position < start + size ) return ( T ) buffer[index( position++ )];
+        if ( !source.hasNext() ) throw new NoSuchElementException();
 
-        var n = source.next();
+        var element = source.next();
+        drop( origin >= 0 ? origin : markCount > 0 ? marks[0] : position );
+        if ( size == buffer.length ) grow();
+        buffer[index( start + size )] = element;
+        size++;
         position++;
-        past.add( n );
-        return n;
+        return element;
+    }
+
+    private int index( long position ) {
+        return ( head + ( int ) ( position - start ) ) & ( buffer.length - 1 );
+    }
+
+    /**
+     * Lets go of the elements before keep.
+     */
+    private void drop( long keep ) {
+        while ( start < keep && size > 0 ) {
+            buffer[head] = null;
+            head = ( head + 1 ) & ( buffer.length - 1 );
+            start++;
+            size--;
+        }
+    }
+
+    private void grow() {
+        var grown = new Object[buffer.length * 2];
+        for ( var i = 0; i < size; i++ ) grown[i] = buffer[( head + i ) & ( buffer.length - 1 )];
+        buffer = grown;
+        head = 0;
     }
 }
@@ -0,0 +1,75 @@
+package name.voided.datatypes;
+
+/**
+ * A view of a range of a {@link CharSequence}, copying nothing until it is turned into a {@link String}.
+ * <p>
+ * Slices are equal to slices with the same characters and hash like the {@link String} they stand for.
+ * They hold on to their source, call {@link #toString()} for a result that outlives it.
+ */
+final public class Slice implements CharSequence, Comparable<CharSequence> {
+    private final CharSequence source;
+    private final int from;
+    private final int to;
+    private String string;
+    private int hash;
+
+    private Slice( CharSequence source, int from, int to ) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static Slice of( CharSequence source, int from, int to ) {
+        if ( from < 0 || to > source.length() || from > to )
+            throw new IndexOutOfBoundsException( "Slice " + from + " to " + to + " of " + source.length() + " characters" );
+        if ( source instanceof Slice slice ) return new Slice( slice.source, slice.from + from, slice.from + to );
+        return new Slice( source, from, to );
+    }
+
+    @Override
+    public int length() {
+        return to - from;
+    }
+
+    @Override
+    public char charAt( int index ) {
+        if ( index < 0 || index >= length() ) throw new IndexOutOfBoundsException( index );
+        return source.charAt( from + index );
+    }
+
+    @Override
+    public Slice subSequence( int start, int end ) {
+        return of( this, start, end );
+    }
+
+    @Override
+    public String toString() {
+        if ( string == null ) string = source.subSequence( from, to ).toString();
+        return string;
+    }
+
+    @Override
+    public int compareTo( CharSequence other ) {
+        return CharSequence.compare( this, other );
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if ( this == other ) return true;
+        if ( !( other instanceof Slice slice ) || slice.length() != length() ) return false;
+        for ( var i = 0; i < length(); i++ ) {
+            if ( source.charAt( from + i ) != slice.source.charAt( slice.from + i ) ) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        var h = hash;
+        if ( h == 0 ) {
+            for ( var i = from; i < to; i++ ) h = 31 * h + source.charAt( i );
+            hash = h;
+        }
+        return h;
+    }
+}
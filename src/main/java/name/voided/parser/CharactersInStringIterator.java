@@ -1,8 +1,8 @@
 package name.voided.parser;
 
-import java.util.Iterator;
+import name.voided.datatypes.CharSequenceIterator;
 
-public class CharactersInStringIterator implements Iterator<Character> {
+public class CharactersInStringIterator implements CharSequenceIterator {
     public final String intern;
     public int position;
 
@@ -21,4 +21,9 @@ public class CharactersInStringIterator implements Iterator<Character> {
     public Character next() {
         return intern.charAt( position++ );
     }
+
+    @Override
+    public CharSequence remaining() {
+        return position == 0 ? intern : intern.substring( position );
+    }
 }
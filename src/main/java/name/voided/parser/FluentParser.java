@@ -1,15 +1,26 @@
 package name.voided.parser;
 
 import name.voided.datatypes.*;
-import name.voided.datatypes.IStepper.Position;
 import name.voided.datatypes.tuple.Tuple2;
-import name.voided.datatypes.tuple.Tuple3;
 import name.voided.datatypes.tuple.Tuples;
+import name.voided.parser.templates.CharClass;
+import name.voided.parser.templates.CharParser;
+import name.voided.parser.templates.CharPredicate;
+import name.voided.parser.templates.Literals;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.ParserNode;
+import name.voided.parser.templates.ParserNode.Span.Take;
 import name.voided.parser.templates.Parser;
+import name.voided.parser.templates.ParserRef;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -31,21 +42,25 @@ public class FluentParser {
     public static <TIn> Parser<TIn, TIn> satisfy( Function<TIn, Boolean> property ) {
         return new Parser<>( UNKNOWN, ( source ) -> {
 
-            if ( !source.hasContent() ) return failure( Tuples.of( UNKNOWN, "No more input", source.getPosition() ) );
+            if ( !source.hasContent() ) return failure( ParseFailure.expecting( UNKNOWN, source ) );
 
             var next = source.get();
             if ( property.apply( next ) ) return success( Tuples.of( next, source.step() ) );
 
-            return failure( Tuples.of( UNKNOWN, "Unexpected '" + next + "'", source.getPosition() ) );
-        } );
+            return failure( ParseFailure.expecting( UNKNOWN, source ) );
+        }, new ParserNode.Satisfy( property ) );
+    }
+
+    public static CharParser satisfyChar( CharPredicate property ) {
+        return new CharParser( UNKNOWN, property );
     }
 
-    public static Parser<Character, Character> parseCharacter( Character c ) {
-        return satisfy( ( Function<Character, Boolean> ) c::equals ).withLabel( c + "" );
+    public static CharParser parseCharacter( char c ) {
+        return new CharParser( c + "", CharPredicate.is( c ) );
     }
 
-    public static Parser<Character, Character> parseLetter() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isLetter ).withLabel( "Letter" );
+    public static CharParser parseLetter() {
+        return new CharParser( "Letter", Character::isLetter );
     }
 
     public static <TIn, TOut> Parser<TIn, TOut> choice( List<Parser<TIn, TOut>> parsers ) {
@@ -57,32 +72,48 @@ public class FluentParser {
         return choice( in.stream().map( toParser ).collect( Collectors.toList() ) );
     }
 
-    public static Parser<Character, Character> parseLowercase() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isLowerCase ).withLabel( "Lowercase" );
+    public static CharParser parseLowercase() {
+        return new CharParser( "Lowercase", Character::isLowerCase );
     }
 
-    public static Parser<Character, Character> parseUppercase() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isUpperCase ).withLabel( "Uppercase" );
+    public static CharParser parseUppercase() {
+        return new CharParser( "Uppercase", Character::isUpperCase );
     }
 
     public static Parser<Character, Integer> parseDigit() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isDigit ).map( x -> Integer.valueOf( x + "" ) ).withLabel( "Digit" );
+        return new CharParser( "Digit", Character::isDigit ).mapToInt( c -> Character.digit( c, 10 ) );
+    }
+
+    /**
+     * One or more digits as the int they make in decimal, added up while they are read instead of collected and parsed.
+     * Digits past {@link Integer#MAX_VALUE} fail where they start.
+     */
+    public static Parser<Character, Integer> parseDigits() {
+        return span( "Digits", new CharParser( "Digit", Character::isDigit ), 1, Take.DIGITS );
     }
 
-    public static Parser<Character, Character> parseWhitespace() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isWhitespace ).withLabel( "Whitespace" );
+    public static CharParser parseWhitespace() {
+        return new CharParser( "Whitespace", Character::isWhitespace );
     }
 
-    public static Parser<Character, Character> parseAlphaNumeric() {
-        return satisfy( ( Function<Character, Boolean> ) Character::isLetterOrDigit ).withLabel( "AlphaNumeric" );
+    public static CharParser parseAlphaNumeric() {
+        return new CharParser( "AlphaNumeric", Character::isLetterOrDigit );
     }
 
-    public static Parser<Character, Character> parseAny() {
-        return satisfy( ( Function<Character, Boolean> ) ( c ) -> true ).withLabel( "AnyCharacter" );
+    public static CharParser parseAny() {
+        return new CharParser( "AnyCharacter", ( c ) -> true );
     }
 
     public static <TIn, TOut> Parser<TIn, TOut> returnParser( TOut value ) {
-        return new Parser<>( UNKNOWN, ( str ) -> success( Tuples.of( value, str ) ) );
+        return new Parser<>( UNKNOWN, ( str ) -> success( Tuples.of( value, str ) ), new ParserNode.Pure( value ) );
+    }
+
+    /**
+     * A parser built by supplier the first time it is used, for parsers that contain themselves.
+     * See {@link ParserRef} for setting the parser explicitly instead.
+     */
+    public static <TIn, TOut> Parser<TIn, TOut> lazy( String label, Supplier<Parser<TIn, TOut>> supplier ) {
+        return new ParserRef<>( label, supplier );
     }
 
     public static <TIn, TResult, TParameter> Function<Parser<TIn, TParameter>, Parser<TIn, TResult>> applyParser( Parser<TIn, Function<TParameter, TResult>> functionParser ) {
@@ -129,48 +160,208 @@ public class FluentParser {
         return consP.apply( head ).apply( sequence( tail ) );
     }
 
+    /**
+     * Matches str, compared as a whole against text in memory and character by character against anything else.
+     */
     public static Parser<Character, String> parseString( String str ) {
         var list = new ArrayList<Parser<Character, Character>>( str.length() );
         for ( char c : str.toCharArray() ) {
             list.add( parseCharacter( c ) );
         }
-        return sequence( list ).map( characters -> characters.stream()
-                .reduce( new StringBuilder(),
-                        StringBuilder::append,
-                        StringBuilder::append )
-                .toString() ).withLabel( "'" + str + "'" );
-    }
-
-    private static <TPIn, T> Tuple2<List<T>, ImmutableStepper<TPIn>> parseZeroOrMore( Parser<TPIn, T> parser, ImmutableStepper<TPIn> input ) {
-        return switch ( parser.parse( input ) ) {
-            case Result.Failure<Tuple2<T, ImmutableStepper<TPIn>>, ?> ignored -> Tuples.of( List.of(), input );
-            case Result.Success<Tuple2<T, ImmutableStepper<TPIn>>, ?> success -> {
-                var following = parseZeroOrMore( parser, success.value().v1 );
-                yield Tuples.of(
-                        concat( List.of( success.value().v0 ), following.v0 ),
-                        following.v1 );
+        var label = "'" + str + "'";
+        // the characters matched are the ones of str, no need to put them together again
+        var characters = sequence( list ).map( matched -> str ).withLabel( label );
+
+        return new Parser<>( label, source -> {
+            if ( !( source instanceof CharSequenceStepper input ) ) return characters.parse( source );
+            var end = Literals.match( str, label, input, ( int ) input.getOffset() );
+            if ( end < 0 ) return failure( ParseFailure.unexpected( label, input.at( ~end ) ) );
+            return success( Tuples.of( str, input.at( end ) ) );
+        }, new ParserNode.Literal( str ) );
+    }
+
+    /**
+     * The value paired with the first of the literals the input starts with, like a {@link #choice} between {@link #parseString}s mapped to the values,
+     * but telling which one it is in a single pass over text in memory.
+     */
+    public static <T> Parser<Character, T> choiceOfLiterals( List<Tuple2<String, T>> literals ) {
+        var trie = Literals.of( literals.stream().map( literal -> literal.v0 ).collect( Collectors.toList() ) );
+        var values = literals.stream().map( literal -> literal.v1 ).collect( Collectors.toList() );
+        var label = trie.label();
+        var alternatives = choice( literals.stream()
+                .map( literal -> parseString( literal.v0 ).map( matched -> literal.v1 ) )
+                .collect( Collectors.toList() ) ).named( label );
+
+        return new Parser<>( label, source -> {
+            if ( !( source instanceof CharSequenceStepper input ) ) return alternatives.parse( source );
+            var from = ( int ) input.getOffset();
+            var index = trie.match( input, from );
+            if ( index < 0 ) return failure( ParseFailure.unexpected( label, input.at( ~index ) ) );
+            return success( Tuples.of( values.get( index ), input.at( from + trie.literal( index ).length() ) ) );
+        }, new ParserNode.OneOfLiterals( trie, values ) );
+    }
+
+    /**
+     * Applies parser as often as it succeeds, adding every hit to into.
+     * Returns the stepper after the last hit, or the failure ending the loop if it failed past a {@link Parser#cut()}.
+     */
+    public static <TPIn, T> Result<IStepper<TPIn>, ParseFailure> collectMany( Parser<TPIn, T> parser, IStepper<TPIn> input, Collection<? super T> into ) {
+        return collectMany( parser, input, ( Consumer<? super T> ) into::add );
+    }
+
+    /**
+     * Like {@link #collectMany(Parser, IStepper, Collection)}, but hands every hit to into.
+     */
+    public static <TPIn, T> Result<IStepper<TPIn>, ParseFailure> collectMany( Parser<TPIn, T> parser, IStepper<TPIn> input, Consumer<? super T> into ) {
+        var rest = input;
+        while ( true ) {
+            switch ( parser.parse( rest ) ) {
+                case Result.Failure<Tuple2<T, IStepper<TPIn>>, ParseFailure> failure -> {
+                    if ( rest.getContext().committedPast( rest.getOffset() ) ) return failure( failure.value() );
+                    return success( rest );
+                }
+                case Result.Success<Tuple2<T, IStepper<TPIn>>, ParseFailure> success -> {
+                    into.accept( success.value().v0 );
+                    // a parser succeeding without consuming anything would match forever
+                    if ( success.value().v1.getOffset() == rest.getOffset() ) return success( rest );
+                    rest = success.value().v1;
+                }
             }
-        };
+        }
+    }
+
+    private static <TPIn, T> Result<Tuple2<List<T>, IStepper<TPIn>>, ParseFailure> parseZeroOrMore( Parser<TPIn, T> parser, IStepper<TPIn> input ) {
+        List<T> hits = new ArrayList<>();
+        return collectMany( parser, input, hits ).map( rest -> Tuples.of( hits, rest ) );
     }
 
     public static <TPIn, T> Parser<TPIn, List<T>> many( Parser<TPIn, T> parser ) {
-        return new Parser<>( "many: " + parser.label, str -> Result.success( parseZeroOrMore( parser, str ) ) );
+        return new Parser<>( "many: " + parser.label, str -> parseZeroOrMore( parser, str ), new ParserNode.Many( parser, false ) );
     }
 
     public static <TPIn, T> Parser<TPIn, List<T>> manyAtLeastOnce( Parser<TPIn, T> parser ) {
+        var failureLabel = "manyAtLeastOnce: " + parser.label;
         return new Parser<>( parser.label, str -> {
             var hits = parseZeroOrMore( parser, str );
-            if ( hits.v0.size() > 0 ) return success( hits );
-            return failure( Tuples.of( "manyAtLeastOnce: " + parser.label, "Parser didn't find any hits", str.getPosition() ) );
+            if ( hits instanceof Result.Success<Tuple2<List<T>, IStepper<TPIn>>, ParseFailure> success && success.value().v0.isEmpty() )
+                return failure( ParseFailure.of( failureLabel, "Parser didn't find any hits", str ) );
+            return hits;
+        }, new ParserNode.Many( parser, true ) );
+    }
+
+    /**
+     * Like {@link #many}, but only counts the hits instead of collecting them, for parsers run for their effect.
+     */
+    public static <TPIn, T> Parser<TPIn, Integer> skipMany( Parser<TPIn, T> parser ) {
+        return new Parser<>( "skipMany: " + parser.label, str -> {
+            var hits = 0;
+            var rest = str;
+            while ( true ) {
+                switch ( parser.parse( rest ) ) {
+                    case Result.Failure<Tuple2<T, IStepper<TPIn>>, ParseFailure> failure -> {
+                        if ( rest.getContext().committedPast( rest.getOffset() ) ) return failure( failure.value() );
+                        return success( Tuples.of( hits, rest ) );
+                    }
+                    case Result.Success<Tuple2<T, IStepper<TPIn>>, ParseFailure> success -> {
+                        hits++;
+                        if ( success.value().v1.getOffset() == rest.getOffset() ) return success( Tuples.of( hits, rest ) );
+                        rest = success.value().v1;
+                    }
+                }
+            }
         } );
     }
 
+    /**
+     * The run of characters the character parser accepts, as a string.
+     * The run is scanned in one loop over a {@link CharClass} rather than a call of the parser per character.
+     */
+    public static Parser<Character, String> takeWhile( CharParser chars ) {
+        return span( "takeWhile: " + chars.label, chars, 0, Take.STRING );
+    }
+
+    /**
+     * Like {@link #takeWhile}, but fails unless there is at least one character.
+     */
+    public static Parser<Character, String> takeWhile1( CharParser chars ) {
+        return span( chars.label, chars, 1, Take.STRING );
+    }
+
+    /**
+     * Like {@link #takeWhile}, but yields a {@link Slice} of the input instead of copying the run,
+     * call {@code toString()} on it for a string that doesn't hold on to the input.
+     * Only input that isn't in memory as a whole is copied.
+     */
+    public static Parser<Character, CharSequence> sliceWhile( CharParser chars ) {
+        return span( "sliceWhile: " + chars.label, chars, 0, Take.SLICE );
+    }
+
+    /**
+     * The text the parser matched, as a {@link Slice} of text in memory, instead of the value it makes of it.
+     * Parsing what the parser matched again, like a number, from the slice spares the parser building its parts.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static Parser<Character, CharSequence> recognize( Parser<Character, ?> parser ) {
+        var recognized = ( Parser<Character, Object> ) parser;
+        return new Parser<>( parser.label, source -> switch ( recognized.parse( source ) ) {
+            case Result.Failure<Tuple2<Object, IStepper<Character>>, ParseFailure> failure -> failure( failure.value() );
+            case Result.Success<Tuple2<Object, IStepper<Character>>, ParseFailure> success -> {
+                var rest = success.value().v1;
+                if ( source instanceof CharSequenceStepper text )
+                    yield success( Tuples.of( Slice.of( text.getText(), ( int ) text.getOffset(), ( int ) rest.getOffset() ), rest ) );
+                var matched = new StringBuilder();
+                for ( var at = source; at.getOffset() < rest.getOffset(); at = at.step() ) matched.append( at.get() );
+                yield success( Tuples.of( matched.toString(), rest ) );
+            }
+        }, new ParserNode.Recognize( parser ) );
+    }
+
+    /**
+     * Like {@link #takeWhile}, but only counts the characters.
+     */
+    public static Parser<Character, Integer> skipWhile( CharParser chars ) {
+        return span( "skipWhile: " + chars.label, chars, 0, Take.LENGTH );
+    }
+
+    /**
+     * Like {@link #skipWhile}, but fails unless there is at least one character.
+     */
+    public static Parser<Character, Integer> skipWhile1( CharParser chars ) {
+        return span( chars.label, chars, 1, Take.LENGTH );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> Parser<Character, T> span( String label, CharParser chars, int min, Take take ) {
+        var charClass = CharClass.of( chars.predicate );
+        var expected = chars.label;
+        return new Parser<>( label, source -> {
+            IStepper<Character> rest;
+            Object value;
+            if ( source instanceof CharSequenceStepper text ) {
+                var from = ( int ) text.getOffset();
+                var end = charClass.span( text.getText(), from, text.getText().length() );
+                rest = text.at( end );
+                value = take.of( text.getText(), from, end );
+            } else {
+                var taken = new StringBuilder();
+                rest = source;
+                while ( rest.hasContent() && charClass.test( rest.get() ) ) {
+                    taken.append( rest.get() );
+                    rest = rest.step();
+                }
+                value = take == Take.SLICE ? taken.toString() : take.of( taken, 0, taken.length() );
+            }
+
+            if ( rest.getOffset() - source.getOffset() < min ) return failure( ParseFailure.expecting( expected, source ) );
+            if ( value == null ) return failure( ParseFailure.of( expected, Take.TOO_LARGE, source ) );
+            // the run ends where the next character wasn't accepted, recorded like a loop over the character parser does
+            rest.getContext().expect( rest, UNKNOWN.equals( expected ) ? null : expected );
+            return success( Tuples.of( ( T ) value, rest ) );
+        }, new ParserNode.Span( charClass, expected, min, take ) );
+    }
+
     public static Parser<Character, Integer> parseInteger() {
-        return optional( parseCharacter( '-' ) )
-                .andThen( manyAtLeastOnce( parseDigit() )
-                                .map( FluentParser::join )
-                                .map( Integer::valueOf ),
-                        ( opt, i ) -> opt.map( c -> -i ).orElse( i ) );
+        return optional( parseCharacter( '-' ) ).andThen( parseDigits(), ( opt, i ) -> opt.map( c -> -i ).orElse( i ) );
     }
 
     public static <E> String join( List<E> list, String sep ) {
@@ -209,8 +400,8 @@ public class FluentParser {
      */
     public static <TPIn, TPOut, TFOut> Parser<TPIn, TFOut> bind( Function<TPOut, Parser<TPIn, TFOut>> f, Parser<TPIn, TPOut> p ) {
         return new Parser<>( UNKNOWN, ( str ) -> switch ( p.parse( str ) ) {
-            case Result.Failure<Tuple2<TPOut, ImmutableStepper<TPIn>>, Tuple3<String, String, Position>> failure -> failure( ( failure ).value() );
-            case Result.Success<Tuple2<TPOut, ImmutableStepper<TPIn>>, Tuple3<String, String, Position>> success -> f.apply( success.value().v0 ).parse( success.value().v1 );
+            case Result.Failure<Tuple2<TPOut, IStepper<TPIn>>, ParseFailure> failure -> failure( ( failure ).value() );
+            case Result.Success<Tuple2<TPOut, IStepper<TPIn>>, ParseFailure> success -> f.apply( success.value().v0 ).parse( success.value().v1 );
         } );
     }
 
@@ -224,11 +415,10 @@ public class FluentParser {
      * Utility: Transform the value captured by the parser monad
      */
     public static <TPIn, T, TResult> Function<Parser<TPIn, T>, Parser<TPIn, TResult>> mapParser( Function<T, TResult> f ) {
-        return ( Parser<TPIn, T> p ) -> bind(
-                ( x ) ->
-                        returnParser( f.apply( x ) ),
-                p
-        ).withLabel( p.label );
+        return ( Parser<TPIn, T> p ) -> new Parser<>( p.label, str -> switch ( p.parse( str ) ) {
+            case Result.Failure<Tuple2<T, IStepper<TPIn>>, ParseFailure> failure -> failure( failure.value().withLabel( p.label ) );
+            case Result.Success<Tuple2<T, IStepper<TPIn>>, ParseFailure> success -> success( Tuples.of( f.apply( success.value().v0 ), success.value().v1 ) );
+        }, new ParserNode.Map( p, f ) );
     }
 
     /**
@@ -241,52 +431,91 @@ public class FluentParser {
     /**
      * (p1A.B, p2A.C, +(B.C).D) -> pA.D
      * use parser 1, then parser 2, then combine results
+     * <p>
+     * same as binding p1 to a bind of p2 to a returnParser, without building those parsers for every parse
      */
     public static <TPIn, P1, P2, TResult> Parser<TPIn, TResult> andThen( Parser<TPIn, P1> p1, Parser<TPIn, P2> p2, BiFunction<P1, P2, TResult> combiner ) {
-        return bind(
-                p1Result -> bind(
-                        p2Result -> returnParser( combiner.apply( p1Result, p2Result ) ),
-                        p2 ),
-                p1
-        ).withLabel( "[" + p1.label + " andThen " + p2.label + "]" );
+        return new Parser<TPIn, TResult>( UNKNOWN, str -> switch ( p1.parse( str ) ) {
+            case Result.Failure<Tuple2<P1, IStepper<TPIn>>, ParseFailure> failure -> failure( failure.value() );
+            case Result.Success<Tuple2<P1, IStepper<TPIn>>, ParseFailure> first -> switch ( p2.parse( first.value().v1 ) ) {
+                case Result.Failure<Tuple2<P2, IStepper<TPIn>>, ParseFailure> failure -> failure( failure.value() );
+                case Result.Success<Tuple2<P2, IStepper<TPIn>>, ParseFailure> second -> success( Tuples.of(
+                        combiner.apply( first.value().v0, second.value().v0 ),
+                        second.value().v1 ) );
+            };
+        }, new ParserNode.Sequence( p1, p2, combiner ) ).named( "[" + p1.label + " andThen " + p2.label + "]" );
     }
 
     /**
      * apply and collect p until "until" succeeds, "until" result is not part of the aggregate stepper points at start of until
+     * p succeeding without consuming anything would never get to until, that fails instead
      */
     public static <TPIn, T, TUntil> Parser<TPIn, List<T>> until( Parser<TPIn, T> p, Parser<TPIn, TUntil> until ) {
-        return new Parser<>( p.label + " until " + until.label, str -> switch ( until.parse( str ) ) {
-            case Result.Success ignored -> success( Tuples.of( List.of(), str ) );
-            case Result.Failure ignored -> switch ( p.parse( str ) ) {
-                case Result.Failure<Tuple2<T, ImmutableStepper<TPIn>>, Tuple3<String, String, Position>> failure -> failure( failure.value() );
-                case Result.Success<Tuple2<T, ImmutableStepper<TPIn>>, Tuple3<String, String, Position>> success -> until( p, until ).parse( success.value().v1 ) // keep consuming
-                        .map( tail -> Tuples.of( concat( List.of( success.value().v0 ), tail.v0 ), tail.v1 ) );
-            };
-        } );
+        var label = p.label + " until " + until.label;
+        return new Parser<>( label, str -> {
+            var hits = new ArrayList<T>();
+            var rest = str;
+            while ( until.parse( rest ) instanceof Result.Failure<Tuple2<TUntil, IStepper<TPIn>>, ParseFailure> stop ) {
+                if ( rest.getContext().committedPast( rest.getOffset() ) ) return failure( stop.value() );
+                switch ( p.parse( rest ) ) {
+                    case Result.Failure<Tuple2<T, IStepper<TPIn>>, ParseFailure> failure -> {
+                        return failure( failure.value() );
+                    }
+                    case Result.Success<Tuple2<T, IStepper<TPIn>>, ParseFailure> success -> { // keep consuming
+                        if ( success.value().v1.getOffset() == rest.getOffset() )
+                            return failure( ParseFailure.of( label, "Parser didn't consume any input", rest ) );
+                        hits.add( success.value().v0 );
+                        rest = success.value().v1;
+                    }
+                }
+            }
+            return success( Tuples.of( hits, rest ) );
+        }, new ParserNode.Until( p, until ) );
     }
 
     public static <TIn> Parser<TIn, Boolean> isEnd() {
         return new Parser<>( UNKNOWN, source -> {
             if ( source.canStep() ) {
-                return failure( Tuples.of( "?end", "there is more input", source.getPosition() ) );
+                source.getContext().expect( source, "end of input" );
+                return failure( ParseFailure.of( "?end", "there is more input", source ) );
             }
             return success( Tuples.of( true, source ) );
-        } );
+        }, new ParserNode.End() );
     }
 
     public static <E> List<E> concat( List<E> a, List<E> b ) {
         return Stream.concat( a.stream(), b.stream() ).collect( Collectors.toList() );
     }
 
-    public static <TIn, T> String formatResult( Result<Tuple2<T, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> result ) {
+    /**
+     * Failures are reported at the farthest offset the parse reached, with everything expected there.
+     */
+    public static <TIn, T> String formatResult( Result<Tuple2<T, IStepper<TIn>>, ParseFailure> result ) {
         return switch ( result ) {
-            case Result.Failure<Tuple2<T, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> failure -> String.format( "Error parsing '%s' at %s%n\t%s", failure.value().v0, failure.value().v2, failure.value().v1 );
-            case Result.Success<Tuple2<T, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> success -> String.format( "%s", success.value().v0 );
+            case Result.Failure<Tuple2<T, IStepper<TIn>>, ParseFailure> failure -> {
+                var farthest = failure.value().farthest();
+                yield String.format( "Error parsing '%s' at %s%n\t%s", farthest.label(), farthest.position(), farthest.message() );
+            }
+            case Result.Success<Tuple2<T, IStepper<TIn>>, ParseFailure> success -> String.format( "%s", success.value().v0 );
         };
     }
 
-    public static ImmutableStepper<Character> toStepper( String string ) {
-        return new ImmutableStepper<>( new CharactersInStringIterator( string ), '\n' );
+    public static CharSequenceStepper toStepper( String string ) {
+        return new CharSequenceStepper( string, '\n' );
+    }
+
+    /**
+     * Steps over the bytes of the buffer, for grammars reading them without decoding, like {@link JsonParser.JsonUtf8Parser}.
+     */
+    public static ByteBufferStepper toStepper( ByteBuffer bytes ) {
+        return new ByteBufferStepper( bytes, ( byte ) '\n' );
+    }
+
+    /**
+     * Reads the UTF-8 encoded file through a memory mapping as the parse goes, instead of loading it into a string first.
+     */
+    public static MappedFileStepper toStepper( Path file ) throws IOException {
+        return new MappedFileStepper( file, '\n' );
     }
 
 
@@ -0,0 +1,71 @@
+package name.voided.parser;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static name.voided.parser.JsonParser.*;
+
+/**
+ * The values documents are full of as shared instances: null, the booleans and small integers.
+ * All of them are immutable records, so parsing them again hands out the same instance rather than allocating another one.
+ * <p>
+ * Once asked to, counts how many numbers came from here against how many had to be made, to tell whether the cache pays off.
+ * Null and the booleans always come from here and aren't counted.
+ */
+final public class JsonCanonical {
+    private static final int MIN_NUMBER = -128;
+    private static final int MAX_NUMBER = 1023;
+    private static final JsonNumber[] NUMBERS = new JsonNumber[MAX_NUMBER - MIN_NUMBER + 1];
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits( -0.0 );
+    private static volatile boolean counting;
+
+    static {
+        for ( var i = 0; i < NUMBERS.length; i++ ) NUMBERS[i] = new JsonNumber( i + MIN_NUMBER );
+    }
+
+    private JsonCanonical() {
+    }
+
+    static JsonNull nullValue() {
+        return JsonNull.NULL;
+    }
+
+    static JsonBool bool( boolean value ) {
+        return value ? JsonBool.TRUE : JsonBool.FALSE;
+    }
+
+    public static JsonNumber number( double value ) {
+        // -0.0 isn't equal to 0.0 as a record component, it keeps a number of its own
+        if ( value >= MIN_NUMBER && value <= MAX_NUMBER && value == ( int ) value && Double.doubleToRawLongBits( value ) != NEGATIVE_ZERO ) {
+            if ( counting ) HITS.increment();
+            return NUMBERS[( int ) value - MIN_NUMBER];
+        }
+        if ( counting ) MISSES.increment();
+        return new JsonNumber( value );
+    }
+
+    /**
+     * Starts or stops counting hits and misses, which is off until then.
+     */
+    public static void count( boolean count ) {
+        counting = count;
+    }
+
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    public static long misses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * The share of numbers handed out from here while counting, 0 before any.
+     */
+    public static double hitRate() {
+        var hits = hits();
+        var total = hits + misses();
+        return total == 0 ? 0 : ( double ) hits / total;
+    }
+}
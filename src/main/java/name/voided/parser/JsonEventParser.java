@@ -0,0 +1,94 @@
+package name.voided.parser;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple0;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.Parser;
+import name.voided.parser.templates.ParserRef;
+
+import java.util.function.Consumer;
+
+import static name.voided.parser.FluentParser.*;
+import static name.voided.parser.JsonParser.JsonNumberParser.numberText;
+import static name.voided.parser.JsonParser.JsonStringParser.quotedSlice;
+import static name.voided.parser.JsonParser.JsonStringParser.quotedString;
+import static name.voided.parser.JsonParser.punctuation;
+
+/**
+ * Parses JSON into calls on a {@link JsonHandler} instead of a tree of values.
+ * <p>
+ * The grammar is put together from the pieces of {@link JsonParser} and fails the same way,
+ * but arrays and objects are skipped through instead of collected: nothing parsed is kept.
+ * Every array element and object member is cut once parsed, so on input read from an iterator
+ * only the text of the values still open is held, the memory needed grows with how deep values are nested.
+ * Events are sent as soon as their part is parsed, so on invalid input the handler has seen everything up to the error.
+ * <p>
+ * The grammar is built once per parser, which can be reused for any number of documents.
+ */
+final public class JsonEventParser {
+    private final JsonHandler handler;
+    private final ParserRef<Character, Tuple0> value = new ParserRef<>( "jsonValue" );
+    private final Parser<Character, Tuple0> element = value.cut();
+
+    public JsonEventParser( JsonHandler handler ) {
+        this.handler = handler;
+        value.set( stringEvents()
+                .orElse( numberEvents() )
+                .orElse( arrayEvents() )
+                .orElse( objectEvents() )
+                .orElse( boolEvents() )
+                .orElse( nullEvents() ) );
+    }
+
+    public Result<Tuple2<Tuple0, IStepper<Character>>, ParseFailure> parse( IStepper<Character> input ) {
+        return value.parse( input );
+    }
+
+    public Result<Tuple2<Tuple0, IStepper<Character>>, ParseFailure> parse( CharSequence text ) {
+        return parse( new CharSequenceStepper( text, '\n' ) );
+    }
+
+    private Parser<Character, Tuple0> stringEvents() {
+        return emit( quotedString(), handler::string ).withLabel( "jsonString" );
+    }
+
+    private Parser<Character, Tuple0> numberEvents() {
+        return emit( numberText(), text -> handler.number( JsonNumbers.toDouble( text ) ) ).withLabel( "jsonNumber" );
+    }
+
+    private Parser<Character, Tuple0> arrayEvents() {
+        var left = emit( punctuation( '[' ), ignored -> handler.startArray() );
+        var right = emit( punctuation( ']' ), ignored -> handler.endArray() );
+        var values = element.andThenDiscardingThen( optional( whiteSpaces() ) ).skipSepBy( punctuation( ',' ) );
+        return between( left, values, right ).map( count -> Tuples.of() ).withLabel( "jsonArray" );
+    }
+
+    private Parser<Character, Tuple0> objectEvents() {
+        var left = emit( punctuation( '{' ), ignored -> handler.startObject() );
+        var right = emit( punctuation( '}' ), ignored -> handler.endObject() );
+        var key = emit( quotedSlice().map( KeyInterner.shared() ).andThenDiscardingThen( optional( whiteSpaces() ) ), handler::key );
+        var keyValue = key.andThenDiscardingThen( punctuation( ':' ) ).andThenDiscardingThis( element.andThenDiscardingThen( optional( whiteSpaces() ) ) );
+        var keyValues = keyValue.skipSepBy( punctuation( ',' ) );
+        return between( left, keyValues, right ).map( count -> Tuples.of() ).withLabel( "jsonObject" );
+    }
+
+    private Parser<Character, Tuple0> boolEvents() {
+        return emit( parseString( "true" ).orElse( parseString( "false" ) ), bool -> handler.bool( Boolean.parseBoolean( bool ) ) )
+                .withLabel( "jsonBool" );
+    }
+
+    private Parser<Character, Tuple0> nullEvents() {
+        return emit( parseString( "null" ), ignored -> handler.nullValue() ).withLabel( "jsonNull" );
+    }
+
+    private static <T> Parser<Character, Tuple0> emit( Parser<Character, T> parser, Consumer<T> event ) {
+        return parser.map( parsed -> {
+            event.accept( parsed );
+            return Tuples.of();
+        } );
+    }
+}
@@ -0,0 +1,37 @@
+package name.voided.parser;
+
+/**
+ * Receives what {@link JsonEventParser} finds, in document order.
+ * Every method does nothing by default, handlers only implement the events they care about.
+ */
+public interface JsonHandler {
+    default void startObject() {
+    }
+
+    /**
+     * The key of the next member of the current object, its value follows as events of its own.
+     */
+    default void key( String key ) {
+    }
+
+    default void endObject() {
+    }
+
+    default void startArray() {
+    }
+
+    default void endArray() {
+    }
+
+    default void string( String value ) {
+    }
+
+    default void number( double value ) {
+    }
+
+    default void bool( boolean value ) {
+    }
+
+    default void nullValue() {
+    }
+}
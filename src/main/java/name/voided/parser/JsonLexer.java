@@ -0,0 +1,138 @@
+package name.voided.parser;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.ListStepper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static name.voided.parser.JsonToken.Kind.*;
+
+/**
+ * Splits JSON text into {@link JsonToken}s in a single loop over the characters, skipping whitespace,
+ * so the token grammar in {@link JsonParser.JsonTokenParser} only has to deal with structure.
+ * <p>
+ * Text that isn't a token becomes an {@link JsonToken.Kind#INVALID} token up to where it went wrong,
+ * the parser reports it like any other unexpected token.
+ */
+final public class JsonLexer {
+    private JsonLexer() {
+    }
+
+    public static List<JsonToken> tokenize( CharSequence text ) {
+        var tokens = new ArrayList<JsonToken>();
+        var length = text.length();
+        var i = 0;
+        while ( i < length ) {
+            var c = text.charAt( i );
+            if ( c == ' ' || c == '\n' || c == '\r' || c == '\t' ) {
+                i++;
+                continue;
+            }
+
+            var start = i;
+            var kind = switch ( c ) {
+                case '{' -> BEGIN_OBJECT;
+                case '}' -> END_OBJECT;
+                case '[' -> BEGIN_ARRAY;
+                case ']' -> END_ARRAY;
+                case ':' -> COLON;
+                case ',' -> COMMA;
+                case '"' -> STRING;
+                case 't' -> TRUE;
+                case 'f' -> FALSE;
+                case 'n' -> NULL;
+                default -> c == '-' || ( c >= '0' && c <= '9' ) ? NUMBER : INVALID;
+            };
+            // scanners return the end of the token, or its complement if it is malformed
+            var end = switch ( kind ) {
+                case STRING -> scanString( text, i, length );
+                case NUMBER -> scanNumber( text, i, length );
+                case TRUE -> scanLiteral( text, i, length, "true" );
+                case FALSE -> scanLiteral( text, i, length, "false" );
+                case NULL -> scanLiteral( text, i, length, "null" );
+                default -> i + 1;
+            };
+            if ( end < 0 ) {
+                kind = INVALID;
+                end = ~end;
+            }
+            tokens.add( new JsonToken( kind, text, start, end ) );
+            i = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * The tokens of text, positioned where they start in it.
+     */
+    public static IStepper<JsonToken> toStepper( CharSequence text ) {
+        var tokens = tokenize( text );
+        var chars = new CharSequenceStepper( text, '\n' );
+        return new ListStepper<>( tokens, index -> chars.at( index < tokens.size() ? tokens.get( index ).start() : text.length() ).getPosition() );
+    }
+
+    private static int scanString( CharSequence text, int start, int length ) {
+        var i = start + 1;
+        while ( i < length ) {
+            var c = text.charAt( i );
+            if ( c == '"' ) return i + 1;
+            if ( c != '\\' ) {
+                i++;
+                continue;
+            }
+            if ( i + 1 >= length ) return ~length;
+            switch ( text.charAt( i + 1 ) ) {
+                case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> i += 2;
+                case 'u' -> {
+                    for ( var digit = i + 2; digit < i + 6; digit++ ) {
+                        if ( digit >= length || Character.digit( text.charAt( digit ), 16 ) < 0 ) return ~Math.min( digit + 1, length );
+                    }
+                    i += 6;
+                }
+                default -> {
+                    return ~( i + 2 );
+                }
+            }
+        }
+        return ~length;
+    }
+
+    private static int scanNumber( CharSequence text, int start, int length ) {
+        var i = start;
+        if ( text.charAt( i ) == '-' ) i++;
+        if ( i < length && text.charAt( i ) == '0' ) {
+            i++;
+        } else {
+            var digits = skipDigits( text, i, length );
+            if ( digits == i ) return ~Math.min( i + 1, length );
+            i = digits;
+        }
+        if ( i < length && text.charAt( i ) == '.' ) {
+            var digits = skipDigits( text, i + 1, length );
+            if ( digits == i + 1 ) return ~Math.min( digits + 1, length );
+            i = digits;
+        }
+        if ( i < length && ( text.charAt( i ) == 'e' || text.charAt( i ) == 'E' ) ) {
+            i++;
+            if ( i < length && ( text.charAt( i ) == '+' || text.charAt( i ) == '-' ) ) i++;
+            var digits = skipDigits( text, i, length );
+            if ( digits == i ) return ~Math.min( i + 1, length );
+            i = digits;
+        }
+        return i;
+    }
+
+    private static int skipDigits( CharSequence text, int i, int length ) {
+        while ( i < length && text.charAt( i ) >= '0' && text.charAt( i ) <= '9' ) i++;
+        return i;
+    }
+
+    private static int scanLiteral( CharSequence text, int start, int length, String literal ) {
+        for ( var i = 0; i < literal.length(); i++ ) {
+            if ( start + i >= length || text.charAt( start + i ) != literal.charAt( i ) ) return ~Math.min( start + i + 1, length );
+        }
+        return start + literal.length();
+    }
+}
@@ -0,0 +1,180 @@
+package name.voided.parser;
+
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.Rejection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collector;
+
+import static name.voided.parser.JsonParser.*;
+
+/**
+ * The members of a {@link JsonObject}: an immutable map in the order of the document.
+ * <p>
+ * Keys and values are kept in an array each. Small objects, most of them, are looked up in by going through their keys,
+ * larger ones by an open addressed table of indexes into the arrays. Both are written while the object is parsed,
+ * through a {@link Builder} taking one member at a time.
+ */
+final class JsonMembers extends AbstractMap<String, IJsonValue> {
+    // up to this many members, going through the keys beats hashing them
+    private static final int LINEAR = 8;
+
+    private final String[] keys;
+    private final IJsonValue[] values;
+    private final int size;
+    // per slot one more than the index of the member hashing there, 0 for free; null for small objects
+    private final int[] slots;
+
+    private JsonMembers( String[] keys, IJsonValue[] values, int size, int[] slots ) {
+        this.keys = keys;
+        this.values = values;
+        this.size = size;
+        this.slots = slots;
+    }
+
+    /**
+     * Collects members into an object, settling keys repeating in it by duplicates.
+     */
+    static Collector<Tuple2<String, IJsonValue>, Builder, JsonObject> collector( Duplicates duplicates ) {
+        return Collector.of(
+                () -> new Builder( duplicates ),
+                ( builder, member ) -> builder.add( member.v0, member.v1 ),
+                ( builder, other ) -> {
+                    for ( var i = 0; i < other.size; i++ ) builder.add( other.keys[i], other.values[i] );
+                    return builder;
+                },
+                builder -> new JsonObject( builder.build() ) );
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public IJsonValue get( Object key ) {
+        var index = indexOf( keys, size, slots, key );
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+        return indexOf( keys, size, slots, key ) >= 0;
+    }
+
+    @Override
+    public Set<Entry<String, IJsonValue>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, IJsonValue>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, IJsonValue> next() {
+                        if ( next >= size ) throw new NoSuchElementException();
+                        var entry = new SimpleImmutableEntry<>( keys[next], values[next] );
+                        next++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int indexOf( String[] keys, int size, int[] slots, Object key ) {
+        if ( slots == null ) {
+            for ( var i = 0; i < size; i++ ) {
+                if ( keys[i].equals( key ) ) return i;
+            }
+            return -1;
+        }
+        if ( key == null ) return -1;
+        var mask = slots.length - 1;
+        for ( var slot = spread( key.hashCode() ) & mask; slots[slot] != 0; slot = slot + 1 & mask ) {
+            if ( keys[slots[slot] - 1].equals( key ) ) return slots[slot] - 1;
+        }
+        return -1;
+    }
+
+    private static void insert( int[] slots, String key, int index ) {
+        var mask = slots.length - 1;
+        var slot = spread( key.hashCode() ) & mask;
+        while ( slots[slot] != 0 ) slot = slot + 1 & mask;
+        slots[slot] = index + 1;
+    }
+
+    // a table at most half full
+    private static int[] slots( String[] keys, int size ) {
+        var slots = new int[Integer.highestOneBit( size ) << 2];
+        for ( var i = 0; i < size; i++ ) insert( slots, keys[i], i );
+        return slots;
+    }
+
+    private static int spread( int hash ) {
+        return hash ^ hash >>> 16;
+    }
+
+    /**
+     * The members of an object as they are parsed, in one pass: a key repeating is settled by the duplicates policy right when it comes.
+     */
+    static final class Builder {
+        private final Duplicates duplicates;
+        private String[] keys = new String[4];
+        private IJsonValue[] values = new IJsonValue[4];
+        private int size;
+        private int[] slots;
+
+        Builder( Duplicates duplicates ) {
+            this.duplicates = duplicates;
+        }
+
+        void add( String key, IJsonValue value ) {
+            var index = indexOf( keys, size, slots, key );
+            if ( index >= 0 ) {
+                switch ( duplicates ) {
+                    case REJECT -> throw new Rejection( "Duplicate key " + key );
+                    case FIRST -> {
+                    }
+                    case LAST -> values[index] = value;
+                }
+                return;
+            }
+
+            if ( size == keys.length ) {
+                keys = Arrays.copyOf( keys, size * 2 );
+                values = Arrays.copyOf( values, size * 2 );
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+            if ( size > LINEAR ) {
+                if ( slots == null || size * 2 > slots.length ) slots = slots( keys, size );
+                else insert( slots, key, size - 1 );
+            }
+        }
+
+        JsonMembers build() {
+            if ( keys.length != size ) {
+                keys = Arrays.copyOf( keys, size );
+                values = Arrays.copyOf( values, size );
+            }
+            return new JsonMembers( keys, values, size, slots );
+        }
+    }
+}
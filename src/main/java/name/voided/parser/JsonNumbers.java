@@ -0,0 +1,96 @@
+package name.voided.parser;
+
+/**
+ * Turns the text of JSON numbers into doubles and longs without building strings for them.
+ * <p>
+ * The digits are gathered into a long and a power of ten while scanning. Up to 2^53 with a power of ten up to 22
+ * both are exact doubles, and a single multiplication or division of them rounds correctly.
+ * Anything else, like more than 18 significant digits, goes through {@link Double#parseDouble} instead.
+ */
+final class JsonNumbers {
+    private static final long EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private JsonNumbers() {
+    }
+
+    static double toDouble( CharSequence text ) {
+        return toDouble( text, 0, text.length() );
+    }
+
+    static double toDouble( CharSequence text, int from, int to ) {
+        var i = from;
+        var negative = i < to && text.charAt( i ) == '-';
+        if ( negative ) i++;
+
+        var mantissa = 0L;
+        var digits = 0;
+        var exponent = 0;
+        for ( ; i < to && isDigit( text.charAt( i ) ); i++ ) {
+            mantissa = mantissa * 10 + ( text.charAt( i ) - '0' );
+            if ( mantissa != 0 ) digits++;
+        }
+        if ( i < to && text.charAt( i ) == '.' ) {
+            for ( i++; i < to && isDigit( text.charAt( i ) ); i++ ) {
+                mantissa = mantissa * 10 + ( text.charAt( i ) - '0' );
+                if ( mantissa != 0 ) digits++;
+                exponent--;
+            }
+        }
+        if ( i < to && ( text.charAt( i ) == 'e' || text.charAt( i ) == 'E' ) ) {
+            i++;
+            var negativeExponent = i < to && text.charAt( i ) == '-';
+            if ( i < to && ( negativeExponent || text.charAt( i ) == '+' ) ) i++;
+            if ( i == to ) return fallback( text, from, to );
+            var value = 0;
+            for ( ; i < to && isDigit( text.charAt( i ) ); i++ ) {
+                // far past where any double ends up at zero or infinity
+                if ( value < 100_000 ) value = value * 10 + ( text.charAt( i ) - '0' );
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        // more digits than a long surely holds, or not a number this scanner reads
+        if ( digits > 18 || i != to ) return fallback( text, from, to );
+
+        double value;
+        if ( mantissa == 0 ) {
+            value = 0;
+        } else if ( mantissa <= EXACT_MANTISSA && exponent >= -22 && exponent <= 22 ) {
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else return fallback( text, from, to );
+        return negative ? -value : value;
+    }
+
+    /**
+     * Whether the text is an integer a long holds.
+     */
+    static boolean isLong( CharSequence text, int from, int to ) {
+        var i = from < to && text.charAt( from ) == '-' ? from + 1 : from;
+        if ( i == to ) return false;
+        for ( var j = i; j < to; j++ ) {
+            if ( !isDigit( text.charAt( j ) ) ) return false;
+        }
+        if ( to - i < 19 ) return true;
+        try {
+            Long.parseLong( text, from, to, 10 );
+            return true;
+        } catch ( NumberFormatException e ) {
+            return false;
+        }
+    }
+
+    static long toLong( CharSequence text, int from, int to ) {
+        return Long.parseLong( text, from, to, 10 );
+    }
+
+    private static double fallback( CharSequence text, int from, int to ) {
+        return Double.parseDouble( text.subSequence( from, to ).toString() );
+    }
+
+    private static boolean isDigit( char c ) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -1,20 +1,29 @@
 package name.voided.parser;
 
+import name.voided.datatypes.ByteBufferStepper;
+import name.voided.datatypes.CharSequenceStepper;
 import name.voided.datatypes.IStepper;
-import name.voided.datatypes.ImmutableStepper;
 import name.voided.datatypes.Result;
+import name.voided.datatypes.Slice;
 import name.voided.datatypes.tuple.Tuple2;
-import name.voided.datatypes.tuple.Tuple3;
 import name.voided.datatypes.tuple.Tuples;
+import name.voided.parser.templates.CharParser;
+import name.voided.parser.templates.CharPredicate;
+import name.voided.parser.templates.ParseFailure;
 import name.voided.parser.templates.Parser;
+import name.voided.parser.templates.ParserRef;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
 import static name.voided.parser.FluentParser.*;
 import static name.voided.parser.JsonParser.JsonArrayParser.jsonArray;
 import static name.voided.parser.JsonParser.JsonBoolParser.jsonBool;
@@ -39,35 +48,29 @@ public class JsonParser {
     }
 
     public static class JsonStringParser {
-        public static Parser<Character, Character> jsonUnescapedCharacter() {
-            return FluentParser.<Character>satisfy( c -> '\\' != c && '\"' != c )
-                    .withLabel( "char" );
+        public static CharParser jsonUnescapedCharacter() {
+            return new CharParser( "char", c -> '\\' != c && '\"' != c );
         }
 
         public static Parser<Character, Character> jsonEscapedCharacter() {
-            return choice( Stream.of(
-                                    Tuples.of( "\\\\", '\\' ),
-                                    Tuples.of( "\\\"", '\"' ),
-                                    Tuples.of( "\\/", '/' ),
-                                    Tuples.of( "\\b", '\b' ),
-                                    Tuples.of( "\\f", '\f' ),
-                                    Tuples.of( "\\n", '\n' ),
-                                    Tuples.of( "\\r", '\r' ),
-                                    Tuples.of( "\\t", '\t' )
-                            )
-                            .map( escaped -> parseString( escaped.v0 ).map( e -> escaped.v1 ) )
-                            .collect( Collectors.toList() )
-            ).withLabel( "escaped char" );
+            return choiceOfLiterals( List.of(
+                    Tuples.of( "\\\\", '\\' ),
+                    Tuples.of( "\\\"", '\"' ),
+                    Tuples.of( "\\/", '/' ),
+                    Tuples.of( "\\b", '\b' ),
+                    Tuples.of( "\\f", '\f' ),
+                    Tuples.of( "\\n", '\n' ),
+                    Tuples.of( "\\r", '\r' ),
+                    Tuples.of( "\\t", '\t' )
+            ) ).withLabel( "escaped char" );
         }
 
         public static Parser<Character, Character> jsonUnicodeCharacter() {
             var backslash = parseCharacter( '\\' );
             var u = parseCharacter( 'u' );
-            var hexDigit = anyOf( FluentParser::parseCharacter, List.of(
-                    '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
-                    'A', 'B', 'C', 'D', 'E', 'F',
-                    'a', 'b', 'c', 'd', 'e', 'f'
-            ) );
+            var hexDigit = new CharParser( "hex digit", CharPredicate.inRange( '0', '9' )
+                    .or( CharPredicate.inRange( 'A', 'F' ) )
+                    .or( CharPredicate.inRange( 'a', 'f' ) ) );
 
             return backslash
                     .andThenDiscardingThis( u )
@@ -82,13 +85,32 @@ public class JsonParser {
         }
 
         public static Parser<Character, String> quotedString() {
+            return quotedSlice().map( CharSequence::toString );
+        }
+
+        /**
+         * Like {@link #quotedString()}, but a string without escapes in text in memory is a {@link Slice} of it rather than a copy.
+         */
+        public static Parser<Character, CharSequence> quotedSlice() {
             var quote = parseCharacter( '\"' );
             var jsonCharacter = jsonUnescapedCharacter()
                     .orElse( jsonEscapedCharacter() )
                     .orElse( jsonUnicodeCharacter() );
-
-            return between( quote, many( jsonCharacter ), quote )
-                    .map( FluentParser::join );
+            var unescaped = between( quote, many( jsonCharacter ), quote )
+                    .map( characters -> ( CharSequence ) join( characters ) );
+
+            return new Parser<Character, CharSequence>( unescaped.label, source -> {
+                if ( source instanceof CharSequenceStepper stepper && stepper.hasContent() && stepper.getChar() == '\"' ) {
+                    var text = stepper.getText();
+                    var from = ( int ) stepper.getOffset() + 1;
+                    var end = from;
+                    while ( end < text.length() && text.charAt( end ) != '\"' && text.charAt( end ) != '\\' ) end++;
+                    if ( end < text.length() && text.charAt( end ) == '\"' ) {
+                        return success( Tuples.of( Slice.of( text, from, end ), stepper.at( end + 1 ) ) );
+                    }
+                }
+                return unescaped.parse( source );
+            } ).startingWith( CharPredicate.is( '\"' ) );
         }
 
         public static Parser<Character, JsonString> jsonString() {
@@ -102,31 +124,34 @@ public class JsonParser {
         }
 
         public static Parser<Character, Optional<Character>> optPlusMinus() {
-            return optional( parseCharacter( '-' ).orElse( parseCharacter( '+' ) ) );
+            return optional( parseCharacter( '-' ).or( parseCharacter( '+' ) ) );
         }
 
-        public static Parser<Character, Character> zero() {
+        public static CharParser zero() {
             return parseCharacter( '0' );
         }
 
-        public static Parser<Character, Character> oneToNine() {
-            return satisfy( c -> Character.isDigit( c ) && '0' != c );
+        public static CharParser oneToNine() {
+            return satisfyChar( CharPredicate.inRange( '1', '9' ) );
         }
 
-        public static Parser<Character, Character> digit() {
-            return satisfy( Character::isDigit );
+        /**
+         * An ASCII digit, the only digits JSON has.
+         */
+        public static CharParser digit() {
+            return satisfyChar( CharPredicate.inRange( '0', '9' ) );
         }
 
-        public static Parser<Character, Character> point() {
-            return satisfy( c -> '.' == c );
+        public static CharParser point() {
+            return satisfyChar( CharPredicate.is( '.' ) );
         }
 
-        public static Parser<Character, Character> e() {
-            return parseCharacter( 'e' ).orElse( parseCharacter( 'E' ) );
+        public static CharParser e() {
+            return parseCharacter( 'e' ).or( parseCharacter( 'E' ) );
         }
 
         public static Parser<Character, String> nonZeroInt() {
-            return oneToNine().andThen( many( digit() ), ( a, b ) -> a + join( b ) );
+            return oneToNine().andThen( takeWhile( digit() ), ( a, b ) -> a + b );
         }
 
         public static Parser<Character, String> intPart() {
@@ -134,11 +159,11 @@ public class JsonParser {
         }
 
         public static Parser<Character, String> fractionPart() {
-            return point().andThenDiscardingThis( many( digit() ) ).map( FluentParser::join );
+            return point().andThenDiscardingThis( takeWhile1( digit() ) );
         }
 
         public static Parser<Character, Tuple2<Optional<Character>, String>> exponentPart() {
-            return e().andThenDiscardingThis( optPlusMinus() ).andThen( many( digit() ).map( FluentParser::join ) );
+            return e().andThenDiscardingThis( optPlusMinus() ).andThen( takeWhile1( digit() ) );
         }
 
         public static Parser<Character, String> number() {
@@ -160,11 +185,49 @@ public class JsonParser {
                             ) ) ).map( Objects::toString );
         }
 
+        /**
+         * The text of a number as it is in the input, recognized without building any of its parts.
+         * A fraction or an exponent without digits isn't part of it, so the text is always a number {@link JsonNumbers} reads.
+         */
+        public static Parser<Character, CharSequence> numberText() {
+            var intPart = zero().orElse( oneToNine().andThenDiscardingThen( skipWhile( digit() ) ) );
+            var fraction = point().andThenDiscardingThen( skipWhile1( digit() ) );
+            var exponent = e().andThenDiscardingThen( optPlusMinus() ).andThenDiscardingThen( skipWhile1( digit() ) );
+            return recognize( optSign().andThen( intPart ).andThen( optional( fraction ) ).andThen( optional( exponent ) ) );
+        }
+
         public static Parser<Character, JsonNumber> jsonNumber() {
-            return number().map( Double::valueOf ).map( JsonNumber::new ).withLabel( "jsonNumber" );
+            return numberText().map( text -> JsonCanonical.number( JsonNumbers.toDouble( text ) ) ).withLabel( "jsonNumber" );
+        }
+
+        public static Parser<Character, IJsonValue> jsonNumber( Numbers numbers ) {
+            Function<CharSequence, IJsonValue> value = switch ( numbers ) {
+                case DOUBLE -> text -> JsonCanonical.number( JsonNumbers.toDouble( text ) );
+                case LONG -> text -> JsonNumbers.isLong( text, 0, text.length() )
+                        ? new JsonLong( JsonNumbers.toLong( text, 0, text.length() ) )
+                        : JsonCanonical.number( JsonNumbers.toDouble( text ) );
+                case RAW -> JsonRawNumber::new;
+            };
+            return numberText().map( value ).withLabel( "jsonNumber" );
         }
     }
 
+    /**
+     * What numbers are parsed into: always a {@link JsonNumber}, a {@link JsonLong} for the integers a long holds,
+     * or a {@link JsonRawNumber} keeping the text until its value is asked for.
+     */
+    public enum Numbers {
+        DOUBLE, LONG, RAW
+    }
+
+    /**
+     * What an object repeating a key is parsed into: a failure, or the object with the first or the last of the values for it.
+     * Either way the key stays where it first appeared.
+     */
+    public enum Duplicates {
+        REJECT, FIRST, LAST
+    }
+
     public record JsonNumber(double value) implements IJsonValue {
 
         @Override
@@ -175,13 +238,52 @@ public class JsonParser {
         }
     }
 
+    public record JsonLong(long value) implements IJsonValue {
+
+        @Override
+        public String toString() {
+            return "JsonLong{" +
+                    "value=" + value +
+                    '}';
+        }
+    }
+
+    /**
+     * A number not decoded yet. Parsed from text in memory, the text is a slice of it and keeps it from being collected.
+     */
+    public record JsonRawNumber(CharSequence text) implements IJsonValue {
+
+        public double doubleValue() {
+            return JsonNumbers.toDouble( text );
+        }
+
+        public boolean isLong() {
+            return JsonNumbers.isLong( text, 0, text.length() );
+        }
+
+        public long longValue() {
+            return JsonNumbers.toLong( text, 0, text.length() );
+        }
+
+        @Override
+        public String toString() {
+            return "JsonRawNumber{" +
+                    "text=" + text +
+                    '}';
+        }
+    }
+
     public static class JsonArrayParser {
 
         public static Parser<Character, JsonArray> jsonArray() {
-            var left = parseCharacter( '[' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var right = parseCharacter( ']' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var comma = parseCharacter( ',' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var value = jsonValue().andThenDiscardingThen( optional( whiteSpaces() ) );
+            return jsonArray( jsonValue() );
+        }
+
+        public static Parser<Character, JsonArray> jsonArray( Parser<Character, IJsonValue> element ) {
+            var left = punctuation( '[' );
+            var right = punctuation( ']' );
+            var comma = punctuation( ',' );
+            var value = element.andThenDiscardingThen( skipWhile( parseWhitespace() ) );
             var values = value.sepBy( comma );
             return between( left, values, right ).map( JsonArray::new ).withLabel( "jsonArray" );
         }
@@ -201,24 +303,78 @@ public class JsonParser {
     }
 
 
+    /**
+     * A structural character and the whitespace after it.
+     */
+    public static Parser<Character, Character> punctuation( char c ) {
+        return parseCharacter( c ).andThenDiscardingThen( skipWhile( parseWhitespace() ) );
+    }
+
+    /**
+     * The grammar is built once, on first use, and shared: arrays and objects refer back to {@link #jsonValue()} through the reference.
+     */
+    private static final class Grammar {
+        private static final Map<Numbers, ParserRef<Character, IJsonValue>> VALUES = new EnumMap<>( Numbers.class );
+        private static final ParserRef<Character, IJsonValue> STREAMING = value( Numbers.DOUBLE, KeyInterner.shared(), Duplicates.REJECT, true );
+
+        static {
+            for ( var numbers : Numbers.values() ) VALUES.put( numbers, value( numbers, KeyInterner.shared(), Duplicates.REJECT, false ) );
+        }
+
+        static ParserRef<Character, IJsonValue> value( Numbers numbers, Function<? super CharSequence, String> keys, Duplicates duplicates, boolean committing ) {
+            var value = new ParserRef<Character, IJsonValue>( "jsonValue" );
+            var element = committing ? value.cut() : value;
+            value.set( jsonString().map( it -> ( IJsonValue ) it )
+                    .orElse( jsonNumber( numbers ).map( it -> it ) ) // weak ass java generics jank, don't want to weaken the types on the methods -> have to map it to itself for the compiler to swallow it
+                    .orElse( jsonArray( element ).map( it -> it ) )
+                    .orElse( jsonObject( element, keys, duplicates ).map( it -> it ) )
+                    .orElse( jsonBool().map( it -> it ) )
+                    .orElse( jsonNull().map( it -> it ) ) );
+            return value;
+        }
+    }
+
     public static Parser<Character, IJsonValue> jsonValue() {
-        return new Parser<>( "jsonValue", ( src ) ->
-                jsonString().map( it -> ( IJsonValue ) it )
-                        .orElse( jsonNumber().map( it -> it ) ) // weak ass java generics jank, don't want to weaken the types on the methods -> have to map it to itself for the compiler to swallow it
-                        .orElse( jsonArray().map( it -> it ) )
-                        .orElse( jsonObject().map( it -> it ) )
-                        .orElse( jsonBool().map( it -> it ) )
-                        .orElse( jsonNull().map( it -> it ) )
-                        .parse( src ) );
+        return jsonValue( Numbers.DOUBLE );
+    }
+
+    /**
+     * The value parser with numbers parsed into what numbers says.
+     */
+    public static Parser<Character, IJsonValue> jsonValue( Numbers numbers ) {
+        return Grammar.VALUES.get( numbers );
+    }
+
+    /**
+     * The value parser with numbers parsed into what numbers says, the keys of objects made by keys,
+     * {@link KeyInterner#shared()} for the others, and objects repeating keys rejected.
+     * Builds the grammar anew on every call, keep it around.
+     */
+    public static Parser<Character, IJsonValue> jsonValue( Numbers numbers, Function<? super CharSequence, String> keys ) {
+        return jsonValue( numbers, keys, Duplicates.REJECT );
+    }
+
+    /**
+     * Like {@link #jsonValue(Numbers, Function)}, with keys repeating in objects settled by duplicates.
+     */
+    public static Parser<Character, IJsonValue> jsonValue( Numbers numbers, Function<? super CharSequence, String> keys, Duplicates duplicates ) {
+        return Grammar.value( numbers, keys, duplicates, false );
+    }
+
+    /**
+     * Like {@link #jsonValue()}, but cutting after every element of an array and every member of an object, see {@link Parser#cut()}.
+     * For long documents read from an iterator: the input before the value being parsed is let go of,
+     * but whatever the value is part of can't backtrack into it anymore once it is past its first element or member.
+     */
+    public static Parser<Character, IJsonValue> streamingJsonValue() {
+        return Grammar.STREAMING;
     }
 
 
     record JsonObject(Map<String, IJsonValue> entries) implements IJsonValue {
 
         public static JsonObject fromProperties( List<Tuple2<String, IJsonValue>> entries ) {
-            return new JsonObject( Map.copyOf( entries.stream().collect( Collectors.toMap(
-                    entry -> entry.v0,
-                    entry -> entry.v1 ) ) ) );
+            return entries.stream().collect( JsonMembers.collector( Duplicates.REJECT ) );
         }
 
         @Override
@@ -232,26 +388,46 @@ public class JsonParser {
     public static class JsonObjectParser {
 
         public static Parser<Character, JsonObject> jsonObject() {
-            var left = parseCharacter( '{' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var right = parseCharacter( '}' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var comma = parseCharacter( ',' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var colon = parseCharacter( ':' ).andThenDiscardingThen( optional( whiteSpaces() ) );
-            var key = quotedString().andThenDiscardingThen( optional( whiteSpaces() ) );
-            var value = JsonParser.jsonValue().andThenDiscardingThen( optional( whiteSpaces() ) );
+            return jsonObject( jsonValue() );
+        }
+
+        public static Parser<Character, JsonObject> jsonObject( Parser<Character, IJsonValue> member ) {
+            return jsonObject( member, KeyInterner.shared() );
+        }
+
+        /**
+         * An object with its keys made into strings by keys, which may hand out the same string for a key repeating.
+         */
+        public static Parser<Character, JsonObject> jsonObject( Parser<Character, IJsonValue> member, Function<? super CharSequence, String> keys ) {
+            return jsonObject( member, keys, Duplicates.REJECT );
+        }
+
+        /**
+         * An object with keys repeating in it settled by duplicates.
+         */
+        public static Parser<Character, JsonObject> jsonObject( Parser<Character, IJsonValue> member, Function<? super CharSequence, String> keys, Duplicates duplicates ) {
+            var left = punctuation( '{' );
+            var right = punctuation( '}' );
+            var comma = punctuation( ',' );
+            var colon = punctuation( ':' );
+            var key = quotedSlice().map( keys::apply ).andThenDiscardingThen( skipWhile( parseWhitespace() ) );
+            var value = member.andThenDiscardingThen( skipWhile( parseWhitespace() ) );
             var keyValue = key.andThenDiscardingThen( colon ).andThen( value );
-            var keyValues = keyValue.sepBy( comma );
+            var keyValues = keyValue.sepBy( comma, JsonMembers.collector( duplicates ) );
 
-            return between( left, keyValues, right ).map( JsonObject::fromProperties ).withLabel( "jsonObject" );
+            return between( left, keyValues, right ).withLabel( "jsonObject" );
         }
     }
 
     public static class JsonNullParser {
         public static Parser<Character, JsonNull> jsonNull() {
-            return parseString( "null" ).map( it -> new JsonNull() ).withLabel( "jsonNull" );
+            return parseString( "null" ).map( it -> JsonCanonical.nullValue() ).withLabel( "jsonNull" );
         }
     }
 
     record JsonNull() implements IJsonValue {
+        static final JsonNull NULL = new JsonNull();
+
         @Override
         public String toString() {
             return "JsonNull{" +
@@ -262,15 +438,15 @@ public class JsonParser {
     public static class JsonBoolParser {
 
         public static Parser<Character, JsonBool> jsonBool() {
-            return parseString( "true" )
-                    .orElse( parseString( "false" ) )
-                    .map( Boolean::valueOf )
-                    .map( JsonBool::new )
+            return choiceOfLiterals( List.of( Tuples.of( "true", true ), Tuples.of( "false", false ) ) )
+                    .map( JsonCanonical::bool )
                     .withLabel( "jsonBool" );
         }
     }
 
     record JsonBool(boolean value) implements IJsonValue {
+        static final JsonBool TRUE = new JsonBool( true );
+        static final JsonBool FALSE = new JsonBool( false );
 
         @Override
         public String toString() {
@@ -281,6 +457,359 @@ public class JsonParser {
     }
 
 
+    /**
+     * The grammar over the tokens of {@link JsonLexer}, giving the same values as the grammar over characters.
+     * Whitespace is gone by the time the tokens get here.
+     */
+    public static class JsonTokenParser {
+        public static Parser<JsonToken, JsonToken> token( JsonToken.Kind kind ) {
+            return FluentParser.<JsonToken>satisfy( token -> token.kind() == kind ).withLabel( kind.label );
+        }
+
+        public static Parser<JsonToken, JsonString> jsonString() {
+            return token( JsonToken.Kind.STRING ).map( token -> new JsonString( token.stringValue() ) ).withLabel( "jsonString" );
+        }
+
+        public static Parser<JsonToken, JsonNumber> jsonNumber() {
+            return token( JsonToken.Kind.NUMBER ).map( token -> JsonCanonical.number( token.numberValue() ) ).withLabel( "jsonNumber" );
+        }
+
+        public static Parser<JsonToken, JsonArray> jsonArray() {
+            var values = jsonValue().sepBy( token( JsonToken.Kind.COMMA ) );
+            return between( token( JsonToken.Kind.BEGIN_ARRAY ), values, token( JsonToken.Kind.END_ARRAY ) )
+                    .map( JsonArray::new )
+                    .withLabel( "jsonArray" );
+        }
+
+        public static Parser<JsonToken, JsonObject> jsonObject() {
+            var key = token( JsonToken.Kind.STRING ).map( token -> KeyInterner.shared().apply( token.stringSlice() ) );
+            var keyValue = key.andThenDiscardingThen( token( JsonToken.Kind.COLON ) ).andThen( jsonValue() );
+            var keyValues = keyValue.sepBy( token( JsonToken.Kind.COMMA ), JsonMembers.collector( Duplicates.REJECT ) );
+            return between( token( JsonToken.Kind.BEGIN_OBJECT ), keyValues, token( JsonToken.Kind.END_OBJECT ) )
+                    .withLabel( "jsonObject" );
+        }
+
+        public static Parser<JsonToken, JsonBool> jsonBool() {
+            return token( JsonToken.Kind.TRUE ).map( it -> JsonCanonical.bool( true ) )
+                    .orElse( token( JsonToken.Kind.FALSE ).map( it -> JsonCanonical.bool( false ) ) )
+                    .withLabel( "jsonBool" );
+        }
+
+        public static Parser<JsonToken, JsonNull> jsonNull() {
+            return token( JsonToken.Kind.NULL ).map( it -> JsonCanonical.nullValue() ).withLabel( "jsonNull" );
+        }
+
+        public static Parser<JsonToken, IJsonValue> jsonValue() {
+            return Grammar.VALUE;
+        }
+
+        private static final class Grammar {
+            private static final ParserRef<JsonToken, IJsonValue> VALUE = new ParserRef<>( "jsonValue" );
+
+            static {
+                VALUE.set( jsonString().map( it -> ( IJsonValue ) it )
+                        .orElse( jsonNumber().map( it -> it ) )
+                        .orElse( jsonArray().map( it -> it ) )
+                        .orElse( jsonObject().map( it -> it ) )
+                        .orElse( jsonBool().map( it -> it ) )
+                        .orElse( jsonNull().map( it -> it ) ) );
+            }
+        }
+    }
+
+
+    /**
+     * The grammar over the bytes of UTF-8 encoded JSON in a {@link ByteBufferStepper}, giving the same values as the grammar over characters,
+     * stopping at the same place and failing with the same messages, only offsets count bytes.
+     * <p>
+     * Everything structural in JSON is ASCII, so nothing is decoded but the contents of strings, when their value is made, and whitespace beyond ASCII.
+     * Strings, numbers and whitespace are scanned straight off the buffer rather than a byte at a time through the combinators,
+     * recording what the grammar over characters expects where they stop.
+     */
+    public static class JsonUtf8Parser {
+        // the labels the grammar over characters expects with
+        private static final String WHITESPACE = parseWhitespace().label;
+        private static final String EXPONENT = JsonNumberParser.e().label;
+        private static final String EXPONENT_SIGN = parseCharacter( '-' ).or( parseCharacter( '+' ) ).label;
+        private static final String[] STRING_CHARACTER = { "char", "escaped char", "unicode", "\"" };
+        private static final String[] ESCAPE = { "\\", "\"", "/", "b", "f", "n", "r", "t", "u" };
+
+        public static Parser<Byte, Integer> whitespace() {
+            return new Parser<>( "Whitespace", source -> {
+                var bytes = bytes( source );
+                var start = ( int ) bytes.getOffset();
+                var end = skipWhitespace( bytes.getBytes(), start );
+                return success( Tuples.of( end - start, afterWhitespace( bytes, end ) ) );
+            } );
+        }
+
+        /**
+         * A structural character and the whitespace after it.
+         */
+        public static Parser<Byte, Byte> punctuation( char c ) {
+            var label = c + "";
+            return new Parser<>( label, source -> {
+                var bytes = bytes( source );
+                if ( !bytes.hasContent() || bytes.getByte() != c ) return failure( ParseFailure.expecting( label, bytes ) );
+                var end = skipWhitespace( bytes.getBytes(), ( int ) bytes.getOffset() + 1 );
+                return success( Tuples.of( ( byte ) c, afterWhitespace( bytes, end ) ) );
+            } );
+        }
+
+        public static Parser<Byte, String> quotedString() {
+            return new Parser<>( "string", source -> {
+                var bytes = bytes( source );
+                var buffer = bytes.getBytes();
+                var start = ( int ) bytes.getOffset();
+                if ( !bytes.hasContent() || buffer.get( start ) != '"' ) return expected( "string", bytes, start, "\"" );
+
+                var end = scanString( bytes, start );
+                if ( end < 0 ) return failure( ParseFailure.unexpected( "string", bytes.at( ~end ) ) );
+                var text = decode( buffer, start + 1, end - 1 );
+                return hit( JsonToken.unescape( text, 0, text.length() ), bytes, end );
+            } );
+        }
+
+        public static Parser<Byte, JsonString> jsonString() {
+            return quotedString().map( JsonString::new ).withLabel( "jsonString" );
+        }
+
+        public static Parser<Byte, JsonNumber> jsonNumber() {
+            return new Parser<Byte, JsonNumber>( "number", source -> {
+                var bytes = bytes( source );
+                var buffer = bytes.getBytes();
+                var start = ( int ) bytes.getOffset();
+                if ( !bytes.hasContent() || buffer.get( start ) != '-' && !isDigit( buffer.get( start ) ) )
+                    return failure( ParseFailure.expecting( "number", bytes ) );
+
+                var end = scanNumber( bytes, start );
+                if ( end < 0 ) return failure( ParseFailure.unexpected( "number", bytes.at( ~end ) ) );
+                return hit( JsonCanonical.number( JsonNumbers.toDouble( new AsciiView( buffer, start, end ) ) ), bytes, end );
+            } ).withLabel( "jsonNumber" );
+        }
+
+        public static Parser<Byte, JsonArray> jsonArray() {
+            var value = jsonValue().andThenDiscardingThen( whitespace() );
+            var values = value.sepBy( punctuation( ',' ) );
+            return between( punctuation( '[' ), values, punctuation( ']' ) ).map( JsonArray::new ).withLabel( "jsonArray" );
+        }
+
+        public static Parser<Byte, JsonObject> jsonObject() {
+            var key = quotedString().andThenDiscardingThen( whitespace() );
+            var value = jsonValue().andThenDiscardingThen( whitespace() );
+            var keyValue = key.andThenDiscardingThen( punctuation( ':' ) ).andThen( value );
+            var keyValues = keyValue.sepBy( punctuation( ',' ), JsonMembers.collector( Duplicates.REJECT ) );
+            return between( punctuation( '{' ), keyValues, punctuation( '}' ) ).withLabel( "jsonObject" );
+        }
+
+        public static Parser<Byte, JsonBool> jsonBool() {
+            return literal( "true", JsonBool.TRUE )
+                    .orElse( literal( "false", JsonBool.FALSE ) )
+                    .withLabel( "jsonBool" );
+        }
+
+        public static Parser<Byte, JsonNull> jsonNull() {
+            return literal( "null", JsonNull.NULL ).withLabel( "jsonNull" );
+        }
+
+        public static Parser<Byte, IJsonValue> jsonValue() {
+            return Grammar.VALUE;
+        }
+
+        private static final class Grammar {
+            private static final ParserRef<Byte, IJsonValue> VALUE = new ParserRef<>( "jsonValue" );
+
+            static {
+                VALUE.set( jsonString().map( it -> ( IJsonValue ) it )
+                        .orElse( jsonNumber().map( it -> it ) )
+                        .orElse( jsonArray().map( it -> it ) )
+                        .orElse( jsonObject().map( it -> it ) )
+                        .orElse( jsonBool().map( it -> it ) )
+                        .orElse( jsonNull().map( it -> it ) ) );
+            }
+        }
+
+        private static <T> Parser<Byte, T> literal( String text, T value ) {
+            var label = "'" + text + "'";
+            return new Parser<>( label, source -> {
+                var bytes = bytes( source );
+                var buffer = bytes.getBytes();
+                var start = ( int ) bytes.getOffset();
+                for ( var i = 0; i < text.length(); i++ ) {
+                    if ( start + i >= buffer.limit() || buffer.get( start + i ) != text.charAt( i ) ) {
+                        if ( i == 0 ) return failure( ParseFailure.expecting( label, bytes ) );
+                        return expected( label, bytes, start + i, text.charAt( i ) + "" );
+                    }
+                }
+                return hit( value, bytes, start + text.length() );
+            } );
+        }
+
+        private static ByteBufferStepper bytes( IStepper<Byte> source ) {
+            if ( source instanceof ByteBufferStepper bytes ) return bytes;
+            throw new IllegalArgumentException( "The UTF-8 grammar reads a ByteBufferStepper, not a " + source.getClass().getSimpleName() );
+        }
+
+        private static <T> Result<Tuple2<T, IStepper<Byte>>, ParseFailure> hit( T value, ByteBufferStepper bytes, int end ) {
+            return success( Tuples.of( value, bytes.at( end ) ) );
+        }
+
+        private static <T> Result<Tuple2<T, IStepper<Byte>>, ParseFailure> expected( String label, ByteBufferStepper bytes, int where, String... expected ) {
+            var at = expect( bytes, where, expected );
+            return failure( ParseFailure.unexpected( label, at ) );
+        }
+
+        // a null label only moves the farthest offset, like the digits of the grammar over characters do
+        private static ByteBufferStepper expect( ByteBufferStepper bytes, int where, String... expected ) {
+            var at = bytes.at( where );
+            for ( var label : expected ) at.getContext().expect( at, label );
+            return at;
+        }
+
+        private static ByteBufferStepper afterWhitespace( ByteBufferStepper bytes, int end ) {
+            var rest = bytes.at( end );
+            rest.getContext().expect( rest, WHITESPACE );
+            return rest;
+        }
+
+        private static String decode( ByteBuffer buffer, int from, int to ) {
+            if ( buffer.hasArray() ) return new String( buffer.array(), buffer.arrayOffset() + from, to - from, StandardCharsets.UTF_8 );
+            var copy = new byte[to - from];
+            buffer.get( from, copy );
+            return new String( copy, StandardCharsets.UTF_8 );
+        }
+
+        /**
+         * Bytes of ASCII text read as characters where they are, for numbers to be decoded without copying them into a string.
+         */
+        private record AsciiView(ByteBuffer buffer, int from, int to) implements CharSequence {
+
+            @Override
+            public int length() {
+                return to - from;
+            }
+
+            @Override
+            public char charAt( int index ) {
+                return ( char ) ( buffer.get( from + index ) & 0xff );
+            }
+
+            @Override
+            public CharSequence subSequence( int start, int end ) {
+                return new AsciiView( buffer, from + start, from + end );
+            }
+
+            @Override
+            public String toString() {
+                var copy = new byte[to - from];
+                buffer.get( from, copy );
+                return new String( copy, StandardCharsets.ISO_8859_1 );
+            }
+        }
+
+        private static boolean isDigit( byte b ) {
+            return b >= '0' && b <= '9';
+        }
+
+        /**
+         * Skips what {@link Character#isWhitespace} takes, as the grammar over characters does.
+         */
+        private static int skipWhitespace( ByteBuffer buffer, int i ) {
+            var length = buffer.limit();
+            while ( i < length ) {
+                var b = buffer.get( i );
+                if ( b >= 0 ) {
+                    if ( !Character.isWhitespace( b ) ) break;
+                    i++;
+                } else {
+                    // the whitespace beyond ASCII is all between U+1680 and U+3000, three bytes each
+                    if ( !Character.isWhitespace( ByteBufferStepper.codePointAt( buffer, i ) ) ) break;
+                    i += 3;
+                }
+            }
+            return i;
+        }
+
+        // the scanners return the end of what they scanned, or the complement of where it went wrong,
+        // recording on the way what the grammar over characters expects where it stops
+
+        private static int scanString( ByteBufferStepper bytes, int start ) {
+            var buffer = bytes.getBytes();
+            var length = buffer.limit();
+            var i = start + 1;
+            while ( i < length ) {
+                var b = buffer.get( i );
+                if ( b == '"' ) return i + 1;
+                if ( b != '\\' ) {
+                    i++;
+                    continue;
+                }
+                var escaped = i + 1 < length ? buffer.get( i + 1 ) : 0;
+                switch ( escaped ) {
+                    case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> i += 2;
+                    case 'u' -> {
+                        for ( var digit = i + 2; digit < i + 6; digit++ ) {
+                            if ( digit >= length || Character.digit( ( char ) ( buffer.get( digit ) & 0xFF ), 16 ) < 0 ) {
+                                expect( bytes, digit, "hex digit" );
+                                return ~digit;
+                            }
+                        }
+                        i += 6;
+                    }
+                    default -> {
+                        expect( bytes, i + 1, ESCAPE );
+                        return ~( i + 1 );
+                    }
+                }
+            }
+            expect( bytes, length, STRING_CHARACTER );
+            return ~length;
+        }
+
+        /**
+         * Like {@link JsonNumberParser#numberText()}: a fraction or an exponent without digits is left to whatever follows.
+         */
+        private static int scanNumber( ByteBufferStepper bytes, int start ) {
+            var buffer = bytes.getBytes();
+            var length = buffer.limit();
+            var i = start;
+            if ( buffer.get( i ) == '-' ) i++;
+            if ( i < length && buffer.get( i ) == '0' ) {
+                i++;
+            } else {
+                var digits = skipDigits( buffer, i );
+                if ( digits == i ) {
+                    expect( bytes, i, "0" );
+                    return ~i;
+                }
+                i = digits;
+            }
+            if ( i < length && buffer.get( i ) == '.' ) {
+                var digits = skipDigits( buffer, i + 1 );
+                expect( bytes, digits, ( String ) null );
+                if ( digits > i + 1 ) i = digits;
+            }
+            if ( i < length && ( buffer.get( i ) == 'e' || buffer.get( i ) == 'E' ) ) {
+                var exponent = i + 1;
+                if ( exponent < length && ( buffer.get( exponent ) == '+' || buffer.get( exponent ) == '-' ) ) exponent++;
+                else expect( bytes, exponent, EXPONENT_SIGN );
+                var digits = skipDigits( buffer, exponent );
+                expect( bytes, digits, ( String ) null );
+                if ( digits > exponent ) i = digits;
+            } else {
+                expect( bytes, i, EXPONENT );
+            }
+            return i;
+        }
+
+        private static int skipDigits( ByteBuffer buffer, int i ) {
+            var length = buffer.limit();
+            while ( i < length && isDigit( buffer.get( i ) ) ) i++;
+            return i;
+        }
+    }
+
+
     public static void main( String[] args ) {
         var input = toStepper( "{\"widget\": {\n" +
                 "    \"debug\": \"on\",\n" +
@@ -311,14 +840,16 @@ public class JsonParser {
 
         switch ( jsonValue().parse( input ) ) {
             // more weak junk generics -> the compiler should absolutely be able to derive the arguments here
-            case Result.Failure<Tuple2<IJsonValue, ImmutableStepper<Character>>, Tuple3<String, String, IStepper.Position>> failure -> System.out.println( "Not valid json: " + formatResult( failure ) );
-            case Result.Success<Tuple2<IJsonValue, ImmutableStepper<Character>>, Tuple3<String, String, IStepper.Position>> success -> {
+            case Result.Failure<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> failure -> System.out.println( "Not valid json: " + formatResult( failure ) );
+            case Result.Success<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> success -> {
                 switch ( success.value().v0 ) {
                     case JsonObject object -> System.out.println( "It's an object! " + object );
                     case JsonArray array -> System.out.println( "It's an array! " + array );
                     case JsonBool bool -> System.out.println( "It's a boolean! " + bool );
                     case JsonNull aNull -> System.out.println( "It's a null! " + aNull );
                     case JsonNumber number -> System.out.println( "It's a number! " + number );
+                    case JsonLong number -> System.out.println( "It's a number! " + number );
+                    case JsonRawNumber number -> System.out.println( "It's a number! " + number );
                     case JsonString str -> System.out.println( "It's a string! " + str );
                 }
             }
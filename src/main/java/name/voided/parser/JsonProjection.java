@@ -0,0 +1,255 @@
+package name.voided.parser;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.Parser;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
+import static name.voided.parser.JsonParser.*;
+
+/**
+ * Reads only some values out of a JSON document, picked by paths like {@code $.widget.window.width} or {@code $.tags[2]}.
+ * <p>
+ * The document is walked down the paths: only the values they end at are parsed, like {@link JsonParser#jsonValue()} does.
+ * Everything else is stepped over by balancing brackets and quotes, without looking at what is in between,
+ * so the parts of the document off the paths are not validated. A path the document doesn't have is left out of the result,
+ * a key repeating in an object is looked up in its last value, and objects parsed keep the last value of a key repeating in them.
+ * Input that isn't a text, like that of an iterator, is parsed whole and the paths are looked up in its value.
+ */
+final public class JsonProjection {
+    private static final Parser<Character, IJsonValue> VALUE = jsonValue( Numbers.DOUBLE, KeyInterner.shared(), Duplicates.LAST );
+    private final Node root = new Node();
+
+    private JsonProjection( List<String> paths ) {
+        for ( var path : paths ) add( path );
+    }
+
+    /**
+     * The values at paths in the document, by their path, in the order they are in the document.
+     */
+    public static Parser<Character, Map<String, IJsonValue>> jsonProjection( String... paths ) {
+        var projection = new JsonProjection( List.of( paths ) );
+        return new Parser<>( "jsonProjection", source -> {
+            if ( !( source instanceof CharSequenceStepper stepper ) ) {
+                return VALUE.parse( source ).map( parsed -> {
+                    var values = new LinkedHashMap<String, IJsonValue>();
+                    found( projection.root, parsed.v0, values );
+                    return Tuples.of( Collections.unmodifiableMap( values ), parsed.v1 );
+                } );
+            }
+            var run = new Run( stepper );
+            var end = run.value( ( int ) stepper.getOffset(), projection.root );
+            if ( end >= 0 ) return success( Tuples.of( Collections.unmodifiableMap( run.values ), stepper.at( end ) ) );
+
+            if ( run.failure != null ) return failure( run.failure );
+            if ( VALUE.parse( source ) instanceof Result.Failure<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> failure )
+                return failure( failure.value() );
+            return failure( ParseFailure.of( "jsonProjection", "Unexpected input in jsonProjection", stepper.at( ~end ) ) );
+        } );
+    }
+
+    private void add( String path ) {
+        if ( !path.startsWith( "$" ) ) throw new IllegalArgumentException( "Not a JSON path: " + path );
+        var node = root;
+        var i = 1;
+        while ( i < path.length() ) {
+            var c = path.charAt( i );
+            if ( c == '.' ) {
+                var end = i + 1;
+                while ( end < path.length() && path.charAt( end ) != '.' && path.charAt( end ) != '[' ) end++;
+                if ( end == i + 1 ) throw new IllegalArgumentException( "Empty key in JSON path " + path );
+                node = node.members.computeIfAbsent( path.substring( i + 1, end ), key -> new Node() );
+                i = end;
+            } else if ( c == '[' ) {
+                var end = path.indexOf( ']', i );
+                if ( end < 0 ) throw new IllegalArgumentException( "Unclosed [ in JSON path " + path );
+                var inside = path.substring( i + 1, end );
+                if ( inside.length() >= 2 && ( inside.charAt( 0 ) == '\'' || inside.charAt( 0 ) == '"' ) && inside.endsWith( inside.substring( 0, 1 ) ) ) {
+                    node = node.members.computeIfAbsent( inside.substring( 1, inside.length() - 1 ), key -> new Node() );
+                } else {
+                    try {
+                        node = node.elements.computeIfAbsent( Integer.parseUnsignedInt( inside ), index -> new Node() );
+                    } catch ( NumberFormatException e ) {
+                        throw new IllegalArgumentException( "Not an index or quoted key in JSON path " + path + ": " + inside );
+                    }
+                }
+                i = end + 1;
+            } else throw new IllegalArgumentException( "Unexpected " + c + " in JSON path " + path );
+        }
+        node.path = path;
+    }
+
+    /**
+     * Where the paths go: the members and elements on them, and the path ending here, if any.
+     */
+    private static final class Node {
+        final Map<String, Node> members = new LinkedHashMap<>();
+        final Map<Integer, Node> elements = new TreeMap<>();
+        String path;
+    }
+
+    // the paths below a value parsed whole are looked up in it, in the order of the document
+    private static void found( Node node, IJsonValue value, Map<String, IJsonValue> values ) {
+        if ( node.path != null ) values.put( node.path, value );
+        if ( value instanceof JsonObject object ) {
+            object.entries().forEach( ( key, found ) -> {
+                var member = node.members.get( key );
+                if ( member != null ) found( member, found, values );
+            } );
+        } else if ( value instanceof JsonArray array ) {
+            node.elements.forEach( ( index, element ) -> {
+                if ( index < array.values().size() ) found( element, array.values().get( index ), values );
+            } );
+        }
+    }
+
+    private static final class Run {
+        private final CharSequenceStepper stepper;
+        private final CharSequence text;
+        private final int length;
+        final Map<String, IJsonValue> values = new LinkedHashMap<>();
+        // the failure of a value on the paths, if parsing it went wrong
+        ParseFailure failure;
+
+        Run( CharSequenceStepper stepper ) {
+            this.stepper = stepper;
+            this.text = stepper.getText();
+            this.length = text.length();
+        }
+
+        /**
+         * Goes through the value at i, returns where it ends or the complement of where it went wrong.
+         */
+        int value( int i, Node node ) {
+            if ( node.path != null ) {
+                switch ( VALUE.parse( stepper.at( i ) ) ) {
+                    case Result.Failure<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> failure -> {
+                        this.failure = failure.value();
+                        return ~i;
+                    }
+                    case Result.Success<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> success -> {
+                        found( node, success.value().v0, values );
+                        return ( int ) success.value().v1.getOffset();
+                    }
+                }
+            }
+            if ( i >= length ) return ~i;
+            var c = text.charAt( i );
+            if ( c == '{' && !node.members.isEmpty() ) return object( i, node );
+            if ( c == '[' && !node.elements.isEmpty() ) return array( i, node );
+            return skip( i );
+        }
+
+        private int object( int i, Node node ) {
+            i = skipWhitespace( i + 1 );
+            if ( i < length && text.charAt( i ) == '}' ) return skipWhitespace( i + 1 );
+            while ( true ) {
+                if ( i >= length || text.charAt( i ) != '"' ) return ~i;
+                var end = skipString( i );
+                if ( end < 0 ) return end;
+                var member = member( node, i + 1, end - 1 );
+                i = skipWhitespace( end );
+                if ( i >= length || text.charAt( i ) != ':' ) return ~i;
+                i = skipWhitespace( i + 1 );
+                i = member == null ? skip( i ) : value( i, member );
+                if ( i < 0 ) return i;
+                i = skipWhitespace( i );
+                if ( i < length && text.charAt( i ) == ',' ) {
+                    i = skipWhitespace( i + 1 );
+                } else if ( i < length && text.charAt( i ) == '}' ) {
+                    return skipWhitespace( i + 1 );
+                } else return ~i;
+            }
+        }
+
+        private int array( int i, Node node ) {
+            i = skipWhitespace( i + 1 );
+            if ( i < length && text.charAt( i ) == ']' ) return skipWhitespace( i + 1 );
+            for ( var index = 0; ; index++ ) {
+                var element = node.elements.get( index );
+                i = element == null ? skip( i ) : value( i, element );
+                if ( i < 0 ) return i;
+                i = skipWhitespace( i );
+                if ( i < length && text.charAt( i ) == ',' ) {
+                    i = skipWhitespace( i + 1 );
+                } else if ( i < length && text.charAt( i ) == ']' ) {
+                    return skipWhitespace( i + 1 );
+                } else return ~i;
+            }
+        }
+
+        private Node member( Node node, int from, int to ) {
+            var escaped = false;
+            for ( var i = from; i < to && !escaped; i++ ) escaped = text.charAt( i ) == '\\';
+            if ( escaped ) return node.members.get( JsonToken.unescape( text, from, to ) );
+            for ( var member : node.members.entrySet() ) {
+                if ( regionEquals( member.getKey(), from, to ) ) return member.getValue();
+            }
+            return null;
+        }
+
+        private boolean regionEquals( String key, int from, int to ) {
+            if ( key.length() != to - from ) return false;
+            for ( var i = 0; i < key.length(); i++ ) {
+                if ( key.charAt( i ) != text.charAt( from + i ) ) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Steps over the value at i, balancing brackets and skipping strings, but checking nothing else.
+         */
+        private int skip( int i ) {
+            if ( i >= length ) return ~i;
+            var c = text.charAt( i );
+            if ( c == '"' ) return skipString( i );
+            if ( c != '[' && c != '{' ) {
+                var start = i;
+                while ( i < length && !isDelimiter( text.charAt( i ) ) ) i++;
+                return i == start ? ~i : i;
+            }
+            var depth = 0;
+            while ( i < length ) {
+                c = text.charAt( i );
+                if ( c == '"' ) {
+                    i = skipString( i );
+                    if ( i < 0 ) return i;
+                    continue;
+                }
+                if ( c == '[' || c == '{' ) depth++;
+                else if ( ( c == ']' || c == '}' ) && --depth == 0 ) return skipWhitespace( i + 1 );
+                i++;
+            }
+            return ~length;
+        }
+
+        private int skipString( int i ) {
+            for ( i++; i < length; i++ ) {
+                var c = text.charAt( i );
+                if ( c == '"' ) return i + 1;
+                if ( c == '\\' ) i++;
+            }
+            return ~length;
+        }
+
+        private int skipWhitespace( int i ) {
+            while ( i < length && Character.isWhitespace( text.charAt( i ) ) ) i++;
+            return i;
+        }
+    }
+
+    private static boolean isDelimiter( char c ) {
+        return c == ',' || c == ']' || c == '}' || c == ':' || Character.isWhitespace( c );
+    }
+}
@@ -0,0 +1,180 @@
+package name.voided.parser;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.Parser;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static name.voided.datatypes.Result.failure;
+
+/**
+ * Parses a stream of JSON values, like newline delimited JSON, from chunks of input as they arrive.
+ * <p>
+ * The chunks are scanned for where top-level values begin and end as they come in, keeping nothing but the nesting depth and whether a string is open,
+ * so every character is looked at once no matter how the input is split up.
+ * As soon as a value is complete it is parsed with the parser of the session and handed out by the call that completed it.
+ * Only the value currently coming in is buffered.
+ * <p>
+ * Every value is parsed on its own: positions in failures count from the start of the value,
+ * and a value failing to parse doesn't stop the values after it.
+ */
+final public class JsonPushSession<T> {
+    private final Parser<Character, T> parser;
+    private final StringBuilder buffer = new StringBuilder();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+    private ByteBuffer undecoded = ByteBuffer.allocate( 0 );
+
+    private int scanned = 0;
+    private int start = -1;
+    private int depth = 0;
+    private boolean scalar = false;
+    private boolean inString = false;
+    private boolean escaped = false;
+
+    public JsonPushSession( Parser<Character, T> parser ) {
+        this.parser = parser;
+    }
+
+    /**
+     * Adds the chunk to the input, returns the values it completed.
+     */
+    public List<Result<Tuple2<T, IStepper<Character>>, ParseFailure>> feed( CharSequence chunk ) {
+        buffer.append( chunk );
+        return scan();
+    }
+
+    /**
+     * Adds the UTF-8 encoded chunk to the input, a character split between chunks is decoded once its last byte arrived.
+     */
+    public List<Result<Tuple2<T, IStepper<Character>>, ParseFailure>> feed( ByteBuffer chunk ) {
+        decode( chunk, false );
+        return scan();
+    }
+
+    /**
+     * Ends the input: a value at the top level still going on is parsed as it is, which for anything but a number means it fails.
+     */
+    public List<Result<Tuple2<T, IStepper<Character>>, ParseFailure>> finish() {
+        decode( ByteBuffer.allocate( 0 ), true );
+        var values = scan();
+        if ( start >= 0 ) {
+            values.add( parse( start, buffer.length() ) );
+            reset();
+        }
+        buffer.setLength( 0 );
+        scanned = 0;
+        return values;
+    }
+
+    private List<Result<Tuple2<T, IStepper<Character>>, ParseFailure>> scan() {
+        var values = new ArrayList<Result<Tuple2<T, IStepper<Character>>, ParseFailure>>();
+        var length = buffer.length();
+        for ( var i = scanned; i < length; i++ ) {
+            var c = buffer.charAt( i );
+            if ( start < 0 ) {
+                if ( isWhitespace( c ) ) continue;
+                start = i;
+                switch ( c ) {
+                    case '{', '[' -> depth = 1;
+                    case '"' -> inString = true;
+                    case '}', ']', ',', ':' -> { // stray, left for the parser to complain about
+                        values.add( parse( start, i + 1 ) );
+                        reset();
+                    }
+                    default -> scalar = true;
+                }
+            } else if ( inString ) {
+                if ( escaped ) {
+                    escaped = false;
+                } else if ( c == '\\' ) {
+                    escaped = true;
+                } else if ( c == '"' ) {
+                    inString = false;
+                    if ( depth == 0 ) {
+                        values.add( parse( start, i + 1 ) );
+                        reset();
+                    }
+                }
+            } else if ( scalar ) {
+                if ( isWhitespace( c ) || isStructural( c ) ) {
+                    values.add( parse( start, i ) );
+                    reset();
+                    i--; // c starts whatever comes next
+                }
+            } else {
+                switch ( c ) {
+                    case '"' -> inString = true;
+                    case '{', '[' -> depth++;
+                    case '}', ']' -> {
+                        if ( --depth == 0 ) {
+                            values.add( parse( start, i + 1 ) );
+                            reset();
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        // everything before the current value is done with
+        var done = start < 0 ? length : start;
+        buffer.delete( 0, done );
+        scanned = length - done;
+        if ( start >= 0 ) start = 0;
+        return values;
+    }
+
+    private Result<Tuple2<T, IStepper<Character>>, ParseFailure> parse( int from, int to ) {
+        var input = new CharSequenceStepper( buffer.substring( from, to ), '\n' );
+        var result = parser.parse( input );
+        if ( result instanceof Result.Success<Tuple2<T, IStepper<Character>>, ParseFailure> success && success.value().v1.hasContent() )
+            return failure( ParseFailure.of( parser.label, "Unexpected '" + success.value().v1.get() + "' after the value", success.value().v1 ) );
+        return result;
+    }
+
+    private void reset() {
+        start = -1;
+        depth = 0;
+        scalar = false;
+        inString = false;
+        escaped = false;
+    }
+
+    private void decode( ByteBuffer chunk, boolean endOfInput ) {
+        ByteBuffer in;
+        if ( undecoded.hasRemaining() ) {
+            in = ByteBuffer.allocate( undecoded.remaining() + chunk.remaining() ).put( undecoded ).put( chunk ).flip();
+        } else in = chunk;
+
+        var out = CharBuffer.allocate( ( int ) ( in.remaining() * ( double ) decoder.maxCharsPerByte() ) + 2 );
+        decoder.decode( in, out, endOfInput );
+        if ( endOfInput ) {
+            decoder.flush( out );
+            decoder.reset();
+        }
+        buffer.append( out.flip() );
+        // the start of a character whose other bytes are still to come
+        undecoded = ByteBuffer.allocate( in.remaining() ).put( in ).flip();
+    }
+
+    private static boolean isWhitespace( char c ) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isStructural( char c ) {
+        return c == '{' || c == '}' || c == '[' || c == ']' || c == ',' || c == ':' || c == '"';
+    }
+}
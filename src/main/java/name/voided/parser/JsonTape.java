@@ -0,0 +1,463 @@
+package name.voided.parser;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.Slice;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.Parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
+import static name.voided.parser.JsonParser.*;
+
+/**
+ * A JSON document as a tape over its text: an entry per value and key in document order, kept in a few primitive arrays.
+ * <p>
+ * Entries are referred to by their index, the root is {@link #ROOT}. The contents of an array or object follow it,
+ * the members of an object as a key entry followed by the entries of its value.
+ * Nothing is decoded while parsing, strings and numbers are read from the text when asked for,
+ * and {@link #value(int)} only builds the {@link IJsonValue} of an entry when it is called.
+ * <p>
+ * The tape accepts what {@link JsonParser#jsonValue()} does. Text it fails on is parsed by that grammar again, for its failure.
+ * Input that isn't a text, like that of an iterator, is parsed by the grammar, and the tape is over a copy of the text of the value.
+ */
+final public class JsonTape {
+    public static final int ROOT = 0;
+
+    public enum Type {
+        OBJECT, ARRAY, STRING, NUMBER, TRUE, FALSE, NULL
+    }
+
+    private static final Type[] TYPES = Type.values();
+    // a string with escapes in it, only the text of any other string is its value
+    private static final byte ESCAPED = ( byte ) TYPES.length;
+
+    private final CharSequence text;
+    private final byte[] types;
+    private final int[] starts;
+    // where a value ends in the text, for arrays and objects the entry past their contents instead
+    private final int[] ends;
+    private final int size;
+    private final Duplicates duplicates;
+
+    private JsonTape( CharSequence text, byte[] types, int[] starts, int[] ends, int size, Duplicates duplicates ) {
+        this.text = text;
+        this.types = types;
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+        this.duplicates = duplicates;
+    }
+
+    public static Parser<Character, JsonTape> jsonTape() {
+        return jsonTape( Duplicates.REJECT );
+    }
+
+    /**
+     * Like {@link #jsonTape()}, with keys repeating in objects settled by duplicates,
+     * as in {@link JsonParser#jsonValue(Numbers, java.util.function.Function, Duplicates)}.
+     */
+    public static Parser<Character, JsonTape> jsonTape( Duplicates duplicates ) {
+        var grammar = duplicates == Duplicates.REJECT ? jsonValue() : jsonValue( Numbers.DOUBLE, KeyInterner.shared(), duplicates );
+        return new Parser<>( "jsonTape", source -> {
+            if ( !( source instanceof CharSequenceStepper stepper ) ) return copied( grammar, source, duplicates );
+            var builder = new Builder( stepper.getText(), duplicates );
+            var end = builder.value( ( int ) stepper.getOffset() );
+            if ( end >= 0 ) return success( Tuples.of( builder.build(), stepper.at( end ) ) );
+
+            if ( grammar.parse( source ) instanceof Result.Failure<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> failure )
+                return failure( failure.value() );
+            return failure( ParseFailure.of( "jsonTape", "Unexpected input in jsonTape", stepper.at( ~end ) ) );
+        } );
+    }
+
+    /**
+     * The tape of the value at source, which has no text to refer to: the grammar finds where the value ends, the tape is over a copy of it.
+     */
+    private static Result<Tuple2<JsonTape, IStepper<Character>>, ParseFailure> copied( Parser<Character, IJsonValue> grammar, IStepper<Character> source, Duplicates duplicates ) {
+        return switch ( grammar.parse( source ) ) {
+            case Result.Failure<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> failure -> failure( failure.value() );
+            case Result.Success<Tuple2<IJsonValue, IStepper<Character>>, ParseFailure> success -> {
+                var rest = success.value().v1;
+                var text = new StringBuilder();
+                for ( var at = source; at.getOffset() < rest.getOffset(); at = at.step() ) text.append( at.get() );
+                var builder = new Builder( text, duplicates );
+                builder.value( 0 );
+                yield success( Tuples.of( builder.build(), rest ) );
+            }
+        };
+    }
+
+    public CharSequence text() {
+        return text;
+    }
+
+    /**
+     * The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    public Type type( int entry ) {
+        var type = types[entry];
+        return type == ESCAPED ? Type.STRING : TYPES[type];
+    }
+
+    /**
+     * The entry after this one and everything in it.
+     */
+    public int next( int entry ) {
+        return isContainer( entry ) ? ends[entry] : entry + 1;
+    }
+
+    /**
+     * The number of elements of an array, or of members of an object.
+     */
+    public int length( int container ) {
+        if ( !isContainer( container ) ) throw new IllegalArgumentException( "Entry " + container + " is a " + type( container ) + ", not an array or object" );
+        var length = 0;
+        for ( var entry = container + 1; entry < ends[container]; entry = next( entry ) ) length++;
+        return types[container] == Type.OBJECT.ordinal() ? length / 2 : length;
+    }
+
+    /**
+     * The entry of the element at index of an array, -1 if it is out of bounds.
+     */
+    public int element( int array, int index ) {
+        expect( array, Type.ARRAY );
+        var entry = array + 1;
+        for ( var i = 0; i < index && entry < ends[array]; i++ ) entry = next( entry );
+        return index >= 0 && entry < ends[array] ? entry : -1;
+    }
+
+    /**
+     * The entry of the value of the member named key of an object, -1 if it has none.
+     * Of several, the last one if the tape keeps the last of repeated keys, the first one otherwise.
+     */
+    public int member( int object, String key ) {
+        expect( object, Type.OBJECT );
+        var found = -1;
+        for ( var entry = object + 1; entry < ends[object]; entry = next( entry + 1 ) ) {
+            if ( !keyEquals( entry, key ) ) continue;
+            if ( duplicates != Duplicates.LAST ) return entry + 1;
+            found = entry + 1;
+        }
+        return found;
+    }
+
+    /**
+     * The value of a string, a {@link Slice} of the text unless it has escapes.
+     */
+    public CharSequence string( int entry ) {
+        expect( entry, Type.STRING );
+        if ( types[entry] == ESCAPED ) return JsonToken.unescape( text, starts[entry] + 1, ends[entry] - 1 );
+        return Slice.of( text, starts[entry] + 1, ends[entry] - 1 );
+    }
+
+    public double number( int entry ) {
+        expect( entry, Type.NUMBER );
+        return JsonNumbers.toDouble( text, starts[entry], ends[entry] );
+    }
+
+    public boolean bool( int entry ) {
+        if ( type( entry ) == Type.TRUE ) return true;
+        expect( entry, Type.FALSE );
+        return false;
+    }
+
+    /**
+     * The text of a string, number or literal as it is in the document.
+     */
+    public CharSequence source( int entry ) {
+        if ( isContainer( entry ) ) throw new IllegalArgumentException( "Entry " + entry + " is an " + type( entry ) + ", not a value in the text" );
+        return Slice.of( text, starts[entry], ends[entry] );
+    }
+
+    /**
+     * The value of the entry and everything in it, as the grammar would have given it.
+     */
+    public IJsonValue value( int entry ) {
+        return switch ( type( entry ) ) {
+            case OBJECT -> {
+                var members = new JsonMembers.Builder( duplicates );
+                for ( var key = entry + 1; key < ends[entry]; key = next( key + 1 ) ) {
+                    members.add( KeyInterner.shared().apply( string( key ) ), value( key + 1 ) );
+                }
+                yield new JsonObject( members.build() );
+            }
+            case ARRAY -> {
+                var values = new ArrayList<IJsonValue>();
+                for ( var element = entry + 1; element < ends[entry]; element = next( element ) ) values.add( value( element ) );
+                yield new JsonArray( values );
+            }
+            case STRING -> new JsonString( string( entry ).toString() );
+            case NUMBER -> JsonCanonical.number( number( entry ) );
+            case TRUE -> JsonCanonical.bool( true );
+            case FALSE -> JsonCanonical.bool( false );
+            case NULL -> JsonCanonical.nullValue();
+        };
+    }
+
+    private boolean isContainer( int entry ) {
+        return types[entry] == Type.OBJECT.ordinal() || types[entry] == Type.ARRAY.ordinal();
+    }
+
+    private boolean keyEquals( int entry, String key ) {
+        if ( types[entry] == ESCAPED ) return string( entry ).toString().equals( key );
+        var from = starts[entry] + 1;
+        if ( ends[entry] - 1 - from != key.length() ) return false;
+        for ( var i = 0; i < key.length(); i++ ) {
+            if ( text.charAt( from + i ) != key.charAt( i ) ) return false;
+        }
+        return true;
+    }
+
+    private void expect( int entry, Type type ) {
+        if ( type( entry ) != type ) throw new IllegalArgumentException( "Entry " + entry + " is a " + type( entry ) + ", not a " + type );
+    }
+
+    /**
+     * Writes the tape in a single loop over the text, the arrays and objects it is in are kept on a stack rather than the call stack.
+     * Like in the grammar, whitespace is skipped after the values in arrays and objects and after their punctuation, nowhere else.
+     */
+    private static final class Builder {
+        // objects with more members than this look for a repeated key in a set rather than pairwise
+        private static final int PAIRWISE = 8;
+
+        private final CharSequence text;
+        private final int length;
+        private final Duplicates duplicates;
+        private byte[] types = new byte[64];
+        private int[] starts = new int[64];
+        private int[] ends = new int[64];
+        private int size;
+        private int[] open = new int[16];
+        private int depth;
+
+        Builder( CharSequence text, Duplicates duplicates ) {
+            this.text = text;
+            this.length = text.length();
+            this.duplicates = duplicates;
+        }
+
+        JsonTape build() {
+            return new JsonTape( text, types, starts, ends, size, duplicates );
+        }
+
+        /**
+         * Puts the value at from on the tape, returns where it ends or the complement of where it went wrong.
+         */
+        int value( int from ) {
+            var i = from;
+            while ( true ) {
+                if ( i >= length ) return ~i;
+                var c = text.charAt( i );
+                if ( c == '[' || c == '{' ) {
+                    push( add( ( byte ) ( c == '[' ? Type.ARRAY : Type.OBJECT ).ordinal(), i, -1 ) );
+                    var contents = skipWhitespace( i + 1 );
+                    if ( contents >= length || text.charAt( contents ) != ( c == '[' ? ']' : '}' ) ) {
+                        // the first element or member follows
+                        i = c == '[' ? contents : key( contents );
+                        if ( i < 0 ) return i;
+                        continue;
+                    }
+                    i = close( contents );
+                } else {
+                    i = switch ( c ) {
+                        case '"' -> string( i );
+                        case 't' -> literal( i, "true", Type.TRUE );
+                        case 'f' -> literal( i, "false", Type.FALSE );
+                        case 'n' -> literal( i, "null", Type.NULL );
+                        default -> c == '-' || isDigit( c ) ? number( i ) : ~i;
+                    };
+                    if ( i < 0 ) return i;
+                }
+                i = afterValue( i );
+                if ( i < 0 || depth == 0 ) return i;
+            }
+        }
+
+        /**
+         * After a value, closes the containers it ends and returns where the next value starts, or where the document ends.
+         */
+        private int afterValue( int i ) {
+            while ( depth > 0 ) {
+                i = skipWhitespace( i );
+                if ( i >= length ) return ~i;
+                var container = open[depth - 1];
+                var object = types[container] == Type.OBJECT.ordinal();
+                var c = text.charAt( i );
+                if ( c == ',' ) {
+                    var next = skipWhitespace( i + 1 );
+                    return object ? key( next ) : next;
+                }
+                if ( c != ( object ? '}' : ']' ) ) return ~i;
+                i = close( i );
+                if ( i < 0 ) return i;
+            }
+            return i;
+        }
+
+        private int key( int i ) {
+            if ( i >= length || text.charAt( i ) != '"' ) return ~i;
+            var end = string( i );
+            if ( end < 0 ) return end;
+            var colon = skipWhitespace( end );
+            if ( colon >= length || text.charAt( colon ) != ':' ) return ~colon;
+            return skipWhitespace( colon + 1 );
+        }
+
+        /**
+         * Closes the container at i, returns where the next value starts or the complement of where a rejected repeated key is.
+         */
+        private int close( int i ) {
+            var container = open[--depth];
+            ends[container] = size;
+            if ( duplicates == Duplicates.REJECT && types[container] == Type.OBJECT.ordinal() ) {
+                var repeated = repeatedKey( container );
+                if ( repeated >= 0 ) return ~starts[repeated];
+            }
+            return skipWhitespace( i + 1 );
+        }
+
+        /**
+         * The first key of an object that an earlier one has, -1 if there is none.
+         */
+        private int repeatedKey( int object ) {
+            var keys = 0;
+            for ( var key = object + 1; key < ends[object]; key = next( key + 1 ) ) keys++;
+            if ( keys > PAIRWISE ) {
+                var seen = new HashSet<String>();
+                for ( var key = object + 1; key < ends[object]; key = next( key + 1 ) ) {
+                    if ( !seen.add( keyText( key ) ) ) return key;
+                }
+                return -1;
+            }
+            for ( var key = object + 1; key < ends[object]; key = next( key + 1 ) ) {
+                for ( var earlier = object + 1; earlier < key; earlier = next( earlier + 1 ) ) {
+                    if ( sameKey( earlier, key ) ) return key;
+                }
+            }
+            return -1;
+        }
+
+        private int next( int entry ) {
+            return types[entry] == Type.OBJECT.ordinal() || types[entry] == Type.ARRAY.ordinal() ? ends[entry] : entry + 1;
+        }
+
+        private String keyText( int entry ) {
+            if ( types[entry] == ESCAPED ) return JsonToken.unescape( text, starts[entry] + 1, ends[entry] - 1 );
+            return text.subSequence( starts[entry] + 1, ends[entry] - 1 ).toString();
+        }
+
+        private boolean sameKey( int a, int b ) {
+            if ( types[a] == ESCAPED || types[b] == ESCAPED ) return keyText( a ).equals( keyText( b ) );
+            var length = ends[a] - starts[a];
+            if ( ends[b] - starts[b] != length ) return false;
+            for ( var i = 1; i < length - 1; i++ ) {
+                if ( text.charAt( starts[a] + i ) != text.charAt( starts[b] + i ) ) return false;
+            }
+            return true;
+        }
+
+        private void push( int container ) {
+            if ( depth == open.length ) open = Arrays.copyOf( open, depth * 2 );
+            open[depth++] = container;
+        }
+
+        private int string( int from ) {
+            var escaped = false;
+            var i = from + 1;
+            while ( i < length ) {
+                var c = text.charAt( i );
+                if ( c == '"' ) {
+                    add( escaped ? ESCAPED : ( byte ) Type.STRING.ordinal(), from, i + 1 );
+                    return i + 1;
+                }
+                if ( c != '\\' ) {
+                    i++;
+                    continue;
+                }
+                escaped = true;
+                if ( i + 1 >= length ) return ~( i + 1 );
+                switch ( text.charAt( i + 1 ) ) {
+                    case '"', '\\', '/', 'b', 'f', 'n', 'r', 't' -> i += 2;
+                    case 'u' -> {
+                        for ( var digit = i + 2; digit < i + 6; digit++ ) {
+                            if ( digit >= length || !isHexDigit( text.charAt( digit ) ) ) return ~digit;
+                        }
+                        i += 6;
+                    }
+                    default -> {
+                        return ~( i + 1 );
+                    }
+                }
+            }
+            return ~i;
+        }
+
+        private int number( int from ) {
+            var i = from;
+            if ( text.charAt( i ) == '-' ) i++;
+            if ( i < length && text.charAt( i ) == '0' ) {
+                i++;
+            } else if ( i < length && isDigit( text.charAt( i ) ) ) {
+                i = skipDigits( i + 1 );
+            } else return ~i;
+            // like in the grammar, a fraction or an exponent without digits is left for whatever follows the number
+            if ( i + 1 < length && text.charAt( i ) == '.' && isDigit( text.charAt( i + 1 ) ) ) i = skipDigits( i + 1 );
+            if ( i < length && ( text.charAt( i ) == 'e' || text.charAt( i ) == 'E' ) ) {
+                var digits = i + 1 < length && ( text.charAt( i + 1 ) == '+' || text.charAt( i + 1 ) == '-' ) ? i + 2 : i + 1;
+                if ( digits < length && isDigit( text.charAt( digits ) ) ) i = skipDigits( digits );
+            }
+            add( ( byte ) Type.NUMBER.ordinal(), from, i );
+            return i;
+        }
+
+        private int literal( int from, String literal, Type type ) {
+            for ( var i = 0; i < literal.length(); i++ ) {
+                if ( from + i >= length || text.charAt( from + i ) != literal.charAt( i ) ) return ~( from + i );
+            }
+            add( ( byte ) type.ordinal(), from, from + literal.length() );
+            return from + literal.length();
+        }
+
+        private int add( byte type, int start, int end ) {
+            if ( size == types.length ) {
+                types = Arrays.copyOf( types, size * 2 );
+                starts = Arrays.copyOf( starts, size * 2 );
+                ends = Arrays.copyOf( ends, size * 2 );
+            }
+            types[size] = type;
+            starts[size] = start;
+            ends[size] = end;
+            return size++;
+        }
+
+        private int skipWhitespace( int i ) {
+            while ( i < length && Character.isWhitespace( text.charAt( i ) ) ) i++;
+            return i;
+        }
+
+        private int skipDigits( int i ) {
+            while ( i < length && isDigit( text.charAt( i ) ) ) i++;
+            return i;
+        }
+
+        private static boolean isDigit( char c ) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isHexDigit( char c ) {
+            return c >= '0' && c <= '9' || c >= 'A' && c <= 'F' || c >= 'a' && c <= 'f';
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package name.voided.parser;
+
+import name.voided.datatypes.Slice;
+
+/**
+ * A token of JSON text as found by {@link JsonLexer}: its kind and where it is in the source, the text itself is only cut out when asked for.
+ */
+public record JsonToken(Kind kind, CharSequence source, int start, int end) {
+
+    public enum Kind {
+        BEGIN_OBJECT( "'{'" ),
+        END_OBJECT( "'}'" ),
+        BEGIN_ARRAY( "'['" ),
+        END_ARRAY( "']'" ),
+        COLON( "':'" ),
+        COMMA( "','" ),
+        STRING( "string" ),
+        NUMBER( "number" ),
+        TRUE( "true" ),
+        FALSE( "false" ),
+        NULL( "null" ),
+        // whatever the lexer couldn't make sense of, left for the parser to fail on
+        INVALID( "invalid" );
+
+        public final String label;
+
+        Kind( String label ) {
+            this.label = label;
+        }
+    }
+
+    public String text() {
+        return source.subSequence( start, end ).toString();
+    }
+
+    /**
+     * The value of a string token, with its escapes resolved.
+     */
+    public String stringValue() {
+        return unescape( source, start + 1, end - 1 );
+    }
+
+    /**
+     * The value of a string token, a {@link Slice} of the source unless it has escapes.
+     */
+    public CharSequence stringSlice() {
+        for ( var i = start + 1; i < end - 1; i++ ) {
+            if ( source.charAt( i ) == '\\' ) return stringValue();
+        }
+        return Slice.of( source, start + 1, end - 1 );
+    }
+
+    /**
+     * The characters of source between from and to, with the escapes of a JSON string resolved.
+     */
+    static String unescape( CharSequence source, int from, int to ) {
+        var escape = from;
+        while ( escape < to && source.charAt( escape ) != '\\' ) escape++;
+        if ( escape == to ) return source.subSequence( from, to ).toString();
+
+        var value = new StringBuilder( to - from ).append( source, from, escape );
+        for ( var i = escape; i < to; i++ ) {
+            var c = source.charAt( i );
+            if ( c != '\\' ) {
+                value.append( c );
+                continue;
+            }
+            c = source.charAt( ++i );
+            switch ( c ) {
+                case 'b' -> value.append( '\b' );
+                case 'f' -> value.append( '\f' );
+                case 'n' -> value.append( '\n' );
+                case 'r' -> value.append( '\r' );
+                case 't' -> value.append( '\t' );
+                case 'u' -> {
+                    value.append( ( char ) Integer.parseInt( source, i + 1, i + 5, 16 ) );
+                    i += 4;
+                }
+                default -> value.append( c ); // \\, \" and \/
+            }
+        }
+        return value.toString();
+    }
+
+    public double numberValue() {
+        return JsonNumbers.toDouble( source, start, end );
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+}
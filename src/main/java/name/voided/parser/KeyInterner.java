@@ -0,0 +1,88 @@
+package name.voided.parser;
+
+import name.voided.datatypes.Slice;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Gives the keys of JSON objects as the same {@link String} every time they repeat, rather than a new one per occurrence.
+ * <p>
+ * A bounded table of the keys seen last, a slot per hash of their characters. A key is looked up by the hash of the text it is,
+ * a {@link Slice} of the input hashes without copying, so a key already in its slot costs no allocation at all.
+ * Keys whose hashes collide take each other's slot, and threads racing for a slot may each make a string of their own:
+ * strings are immutable, so either way every key comes out right. Long keys are never kept.
+ * <p>
+ * Hits and misses are only counted once asked to, see {@link #count(boolean)}.
+ */
+final public class KeyInterner implements Function<CharSequence, String> {
+    private static final int MAX_LENGTH = 64;
+    private static final KeyInterner SHARED = new KeyInterner( 4096 );
+
+    private final String[] table;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean counting;
+
+    /**
+     * A table with room for at least capacity keys.
+     */
+    public KeyInterner( int capacity ) {
+        if ( capacity < 1 || capacity > 1 << 30 ) throw new IllegalArgumentException( "Capacity " + capacity + " is out of range" );
+        this.table = new String[capacity == 1 ? 1 : Integer.highestOneBit( capacity - 1 ) << 1];
+    }
+
+    /**
+     * The table the JSON grammars use unless given another one.
+     */
+    public static KeyInterner shared() {
+        return SHARED;
+    }
+
+    @Override
+    public String apply( CharSequence key ) {
+        if ( key.length() > MAX_LENGTH ) return key.toString();
+        var hash = key instanceof String || key instanceof Slice ? key.hashCode() : hash( key );
+        var slot = ( hash ^ hash >>> 16 ) & ( table.length - 1 );
+        var known = table[slot];
+        if ( known != null && known.hashCode() == hash && known.contentEquals( key ) ) {
+            if ( counting ) hits.increment();
+            return known;
+        }
+        if ( counting ) misses.increment();
+        var string = key.toString();
+        table[slot] = string;
+        return string;
+    }
+
+    /**
+     * Starts or stops counting hits and misses, which is off until then.
+     */
+    public void count( boolean count ) {
+        counting = count;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The share of keys that were already in the table while counting, 0 before any.
+     */
+    public double hitRate() {
+        var hits = hits();
+        var total = hits + misses();
+        return total == 0 ? 0 : ( double ) hits / total;
+    }
+
+    // how String hashes, for sequences that don't
+    private static int hash( CharSequence key ) {
+        var hash = 0;
+        for ( var i = 0; i < key.length(); i++ ) hash = 31 * hash + key.charAt( i );
+        return hash;
+    }
+}
@@ -0,0 +1,46 @@
+package name.voided.parser.templates;
+
+/**
+ * A {@link CharPredicate} worked out up front for ASCII: a bitmap answers for those, the predicate is only asked about anything else.
+ */
+final public class CharClass implements CharPredicate {
+    private final long low;
+    private final long high;
+    private final CharPredicate rest;
+
+    private CharClass( long low, long high, CharPredicate rest ) {
+        this.low = low;
+        this.high = high;
+        this.rest = rest;
+    }
+
+    public static CharClass of( CharPredicate predicate ) {
+        if ( predicate instanceof CharClass known ) return known;
+        var low = 0L;
+        var high = 0L;
+        for ( char c = 0; c < 64; c++ ) {
+            if ( predicate.test( c ) ) low |= 1L << c;
+            if ( predicate.test( ( char ) ( c + 64 ) ) ) high |= 1L << c;
+        }
+        return new CharClass( low, high, predicate );
+    }
+
+    @Override
+    public boolean test( char c ) {
+        if ( c >= 128 ) return rest.test( c );
+        return ( ( c < 64 ? low : high ) >>> c & 1 ) != 0;
+    }
+
+    /**
+     * The end of the run of characters in the class starting at from, at most up to to.
+     */
+    public int span( CharSequence text, int from, int to ) {
+        var i = from;
+        while ( i < to ) {
+            var c = text.charAt( i );
+            if ( c < 128 ? ( ( c < 64 ? low : high ) >>> c & 1 ) == 0 : !rest.test( c ) ) break;
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,71 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.MappedFileStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
+
+/**
+ * A parser for a single character that matches on a {@link CharPredicate}.
+ * <p>
+ * It is a plain {@code Parser<Character, Character>} so it can be used anywhere in a grammar,
+ * but reads the input as a primitive char when the source is a {@link CharSequenceStepper} or {@link MappedFileStepper}
+ * and can be combined with other character parsers without backtracking.
+ */
+public class CharParser extends Parser<Character, Character> {
+    public final CharPredicate predicate;
+
+    public CharParser( String label, CharPredicate predicate ) {
+        super( label, source -> {
+            if ( !source.hasContent() ) return unexpected( label, source );
+
+            var next = current( source );
+            if ( predicate.test( next ) ) return success( Tuples.of( next, source.step() ) );
+
+            return unexpected( label, source );
+        }, new ParserNode.Char( predicate ) );
+        this.predicate = predicate;
+    }
+
+    public boolean test( char c ) {
+        return predicate.test( c );
+    }
+
+    /**
+     * A parser accepting a character if either this or the other parser accepts it, decided on a single look at the input.
+     */
+    public CharParser or( CharParser other ) {
+        return new CharParser( "[" + label + " or " + other.label + "]", predicate.or( other.predicate ) );
+    }
+
+    public Parser<Character, Integer> mapToInt( CharToIntFunction f ) {
+        return new Parser<>( label, source -> {
+            if ( !source.hasContent() ) return unexpected( label, source );
+
+            var next = current( source );
+            if ( predicate.test( next ) ) return success( Tuples.of( f.apply( next ), source.step() ) );
+
+            return unexpected( label, source );
+        }, new ParserNode.Map( this, ( Character c ) -> f.apply( c ) ) );
+    }
+
+    @Override
+    public CharParser withLabel( String label ) {
+        return new CharParser( label, predicate );
+    }
+
+    private static char current( IStepper<Character> source ) {
+        if ( source instanceof CharSequenceStepper chars ) return chars.getChar();
+        if ( source instanceof MappedFileStepper chars ) return chars.getChar();
+        return source.get();
+    }
+
+    private static <T> Result<Tuple2<T, IStepper<Character>>, ParseFailure> unexpected( String label, IStepper<Character> source ) {
+        return failure( ParseFailure.expecting( label, source ) );
+    }
+}
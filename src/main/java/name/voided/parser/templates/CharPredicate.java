@@ -0,0 +1,29 @@
+package name.voided.parser.templates;
+
+/**
+ * A predicate on a primitive char, so testing input doesn't box the character or the answer.
+ */
+@FunctionalInterface
+public interface CharPredicate {
+    boolean test( char c );
+
+    default CharPredicate or( CharPredicate other ) {
+        return c -> test( c ) || other.test( c );
+    }
+
+    default CharPredicate and( CharPredicate other ) {
+        return c -> test( c ) && other.test( c );
+    }
+
+    default CharPredicate negate() {
+        return c -> !test( c );
+    }
+
+    static CharPredicate is( char expected ) {
+        return c -> c == expected;
+    }
+
+    static CharPredicate inRange( char from, char to ) {
+        return c -> c >= from && c <= to;
+    }
+}
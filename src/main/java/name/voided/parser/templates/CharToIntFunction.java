@@ -0,0 +1,6 @@
+package name.voided.parser.templates;
+
+@FunctionalInterface
+public interface CharToIntFunction {
+    int apply( char c );
+}
@@ -0,0 +1,305 @@
+package name.voided.parser.templates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of the class file format for {@link ParserClassGenerator}: a constant pool, fields and methods of plain bytecode.
+ * <p>
+ * Classes are written in the version 49 format, which the JVM verifies by type inference,
+ * so there are no stack map frames to work out.
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int IAND = 0x7e;
+    static final int LUSHR = 0x7d;
+    static final int L2I = 0x88;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPGE = 0xa2;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int PUTSTATIC = 0xb3;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int NEW = 0xbb;
+    static final int CHECKCAST = 0xc0;
+
+    private static final int VERSION = 49;
+    // values never need more, the deepest is a call on a field with two arguments
+    private static final int MAX_STACK = 8;
+
+    private final Bytes pool = new Bytes();
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String name;
+    private final String superName;
+    private final List<String> interfaces = new ArrayList<>();
+    private final Bytes fields = new Bytes();
+    private int fieldCount = 0;
+    private final Bytes methods = new Bytes();
+    private int methodCount = 0;
+
+    ClassFileWriter( String name, String superName ) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void addInterface( String interfaceName ) {
+        interfaces.add( interfaceName );
+    }
+
+    void field( int access, String fieldName, String descriptor ) {
+        fields.u2( access ).u2( utf8( fieldName ) ).u2( utf8( descriptor ) ).u2( 0 );
+        fieldCount++;
+    }
+
+    void method( int access, String methodName, String descriptor, Code code ) {
+        methods.u2( access ).u2( utf8( methodName ) ).u2( utf8( descriptor ) ).u2( 1 );
+        methods.u2( utf8( "Code" ) ).u4( 12 + code.bytes.size );
+        methods.u2( MAX_STACK ).u2( code.maxLocals ).u4( code.bytes.size ).append( code.bytes );
+        methods.u2( 0 ).u2( 0 ); // no exception table, no attributes
+        methodCount++;
+    }
+
+    byte[] toByteArray() {
+        var thisClass = classRef( name );
+        var superClass = classRef( superName );
+        var interfaceRefs = interfaces.stream().mapToInt( this::classRef ).toArray();
+
+        var out = new Bytes();
+        out.u4( 0xCAFEBABE ).u2( 0 ).u2( VERSION );
+        out.u2( poolCount ).append( pool );
+        out.u2( ACC_PUBLIC | ACC_FINAL | ACC_SUPER ).u2( thisClass ).u2( superClass );
+        out.u2( interfaceRefs.length );
+        for ( var ref : interfaceRefs ) out.u2( ref );
+        out.u2( fieldCount ).append( fields );
+        out.u2( methodCount ).append( methods );
+        out.u2( 0 );
+        return out.toByteArray();
+    }
+
+    private int utf8( String value ) {
+        return entry( "U" + value, () -> {
+            var encoded = new ByteArrayOutputStream();
+            try {
+                // class files use the same modified UTF-8 with a length in front
+                new DataOutputStream( encoded ).writeUTF( value );
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+            pool.u1( 1 ).append( encoded.toByteArray() );
+        }, 1 );
+    }
+
+    private int classRef( String className ) {
+        var nameIndex = utf8( className );
+        return entry( "C" + className, () -> pool.u1( 7 ).u2( nameIndex ), 1 );
+    }
+
+    private int string( String value ) {
+        var valueIndex = utf8( value );
+        return entry( "S" + value, () -> pool.u1( 8 ).u2( valueIndex ), 1 );
+    }
+
+    private int longConstant( long value ) {
+        return entry( "J" + value, () -> pool.u1( 5 ).u4( ( int ) ( value >>> 32 ) ).u4( ( int ) value ), 2 );
+    }
+
+    private int member( int tag, String owner, String memberName, String descriptor ) {
+        var ownerIndex = classRef( owner );
+        var nameIndex = utf8( memberName );
+        var descriptorIndex = utf8( descriptor );
+        var nameAndType = entry( "N" + memberName + ":" + descriptor, () -> pool.u1( 12 ).u2( nameIndex ).u2( descriptorIndex ), 1 );
+        return entry( tag + owner + "." + memberName + ":" + descriptor, () -> pool.u1( tag ).u2( ownerIndex ).u2( nameAndType ), 1 );
+    }
+
+    private int entry( String key, Runnable write, int slots ) {
+        var known = entries.get( key );
+        if ( known != null ) return known;
+        write.run();
+        var index = poolCount;
+        poolCount += slots;
+        entries.put( key, index );
+        return index;
+    }
+
+    /**
+     * The bytecode of one method, with jumps to {@link Label}s patched once they are placed.
+     */
+    final class Code {
+        private final Bytes bytes = new Bytes();
+        private int maxLocals;
+
+        Code( int arguments ) {
+            this.maxLocals = arguments;
+        }
+
+        Code op( int opcode ) {
+            bytes.u1( opcode );
+            return this;
+        }
+
+        Code iconst( int value ) {
+            if ( value >= -1 && value <= 5 ) return op( ICONST_0 + value );
+            if ( value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE ) {
+                bytes.u1( BIPUSH ).u1( value );
+            } else bytes.u1( SIPUSH ).u2( value );
+            return this;
+        }
+
+        Code local( int opcode, int index ) {
+            maxLocals = Math.max( maxLocals, index + 1 );
+            bytes.u1( opcode ).u1( index );
+            return this;
+        }
+
+        Code ldc( String value ) {
+            var index = string( value );
+            if ( index < 256 ) {
+                bytes.u1( LDC ).u1( index );
+            } else bytes.u1( LDC_W ).u2( index );
+            return this;
+        }
+
+        Code ldc( long value ) {
+            bytes.u1( LDC2_W ).u2( longConstant( value ) );
+            return this;
+        }
+
+        Code ldcClass( String className ) {
+            bytes.u1( LDC_W ).u2( classRef( className ) );
+            return this;
+        }
+
+        Code type( int opcode, String className ) {
+            bytes.u1( opcode ).u2( classRef( className ) );
+            return this;
+        }
+
+        Code field( int opcode, String owner, String fieldName, String descriptor ) {
+            bytes.u1( opcode ).u2( member( 9, owner, fieldName, descriptor ) );
+            return this;
+        }
+
+        Code invoke( int opcode, String owner, String methodName, String descriptor ) {
+            bytes.u1( opcode ).u2( member( 10, owner, methodName, descriptor ) );
+            return this;
+        }
+
+        /**
+         * argumentSlots counts the receiver.
+         */
+        Code invokeInterface( String owner, String methodName, String descriptor, int argumentSlots ) {
+            bytes.u1( INVOKEINTERFACE ).u2( member( 11, owner, methodName, descriptor ) ).u1( argumentSlots ).u1( 0 );
+            return this;
+        }
+
+        Code jump( int opcode, Label target ) {
+            var at = bytes.size;
+            bytes.u1( opcode ).u2( 0 );
+            if ( target.position >= 0 ) {
+                bytes.patch2( at + 1, target.position - at );
+            } else target.jumps.add( at );
+            return this;
+        }
+
+        Code place( Label label ) {
+            label.position = bytes.size;
+            for ( var at : label.jumps ) bytes.patch2( at + 1, label.position - at );
+            label.jumps.clear();
+            return this;
+        }
+    }
+
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+    }
+
+    private static final class Bytes {
+        private byte[] data = new byte[256];
+        private int size = 0;
+
+        private void ensure( int more ) {
+            if ( size + more > data.length ) data = Arrays.copyOf( data, Math.max( data.length * 2, size + more ) );
+        }
+
+        Bytes u1( int value ) {
+            ensure( 1 );
+            data[size++] = ( byte ) value;
+            return this;
+        }
+
+        Bytes u2( int value ) {
+            return u1( value >>> 8 ).u1( value );
+        }
+
+        Bytes u4( int value ) {
+            return u2( value >>> 16 ).u2( value );
+        }
+
+        Bytes append( byte[] other ) {
+            ensure( other.length );
+            System.arraycopy( other, 0, data, size, other.length );
+            size += other.length;
+            return this;
+        }
+
+        Bytes append( Bytes other ) {
+            return append( other.toByteArray() );
+        }
+
+        void patch2( int at, int value ) {
+            if ( value < Short.MIN_VALUE || value > Short.MAX_VALUE ) throw new IllegalStateException( "Jump too far: " + value );
+            data[at] = ( byte ) ( value >>> 8 );
+            data[at + 1] = ( byte ) value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf( data, size );
+        }
+    }
+}
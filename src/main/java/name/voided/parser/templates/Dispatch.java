@@ -0,0 +1,127 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static name.voided.datatypes.Result.failure;
+
+/**
+ * The alternatives of nested choices in one list, with a table by the next character of the alternative to start trying them from.
+ * <p>
+ * Alternatives before it would fail right where the choice starts, they are not in the {@link FirstSet} of the character.
+ * They are only skipped if the alternative started from is exact for the character: what the skipped ones would have expected
+ * is never reported then, it fails past them if it fails. Otherwise, and outside of ASCII, the choice starts from the first alternative.
+ */
+final class Dispatch {
+    final List<Parser<?, ?>> alternatives = new ArrayList<>();
+    /**
+     * Per alternative, the label of the outermost choice it is in the second alternative of, null for the first alternative.
+     * Its failure past a cut is relabelled to it, the last one's failure always is.
+     */
+    final List<String> labels = new ArrayList<>();
+    private final String label;
+    private final int[] starts = new int[128];
+    private final boolean skips;
+
+    private Dispatch( Parser<?, ?> first, Parser<?, ?> second, String label ) {
+        this.label = label;
+        flatten( first, null );
+        flatten( second, label );
+
+        var firstSets = alternatives.stream().map( FirstSet::of ).toList();
+        var skips = false;
+        for ( char c = 0; c < starts.length; c++ ) {
+            var start = 0;
+            while ( start < firstSets.size() && failsRightAway( firstSets.get( start ), c ) ) start++;
+            var firstSet = start < firstSets.size() ? firstSets.get( start ) : null;
+            if ( firstSet != null && firstSet.exact() && firstSet.chars().test( c ) ) {
+                starts[c] = start;
+                skips |= start > 0;
+            }
+        }
+        this.skips = skips;
+    }
+
+    static Dispatch of( Parser<?, ?> choice ) {
+        var node = ( ParserNode.Choice ) choice.node;
+        return new Dispatch( node.first(), node.second(), choice.label );
+    }
+
+    /**
+     * Whether the table skips any alternative at all.
+     */
+    boolean skips() {
+        return skips;
+    }
+
+    /**
+     * The alternative to start from at pos.
+     */
+    int start( CharSequence text, int pos ) {
+        if ( pos >= text.length() ) return 0;
+        var c = text.charAt( pos );
+        return c < 128 ? starts[c] : 0;
+    }
+
+    /**
+     * Tries the alternatives from start on like the nested choices would.
+     */
+    @SuppressWarnings( "unchecked" )
+    <TIn, TOut> Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> parse( int start, IStepper<TIn> input ) {
+        for ( var i = start; ; i++ ) {
+            var alternative = ( Parser<TIn, TOut> ) alternatives.get( i );
+            switch ( alternative.parse( input ) ) {
+                case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> {
+                    return success;
+                }
+                case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> {
+                    if ( i == alternatives.size() - 1 ) return failure( failure.value().withLabel( label ) );
+                    if ( input.getContext().committedPast( input.getOffset() ) ) {
+                        var cutLabel = labels.get( i );
+                        return cutLabel == null ? failure : failure( failure.value().withLabel( cutLabel ) );
+                    }
+                }
+            }
+        }
+    }
+
+    private void flatten( Parser<?, ?> parser, String label ) {
+        if ( parser.node instanceof ParserNode.Choice choice ) {
+            flatten( choice.first(), label );
+            flatten( choice.second(), label != null ? label : parser.label );
+        } else {
+            alternatives.add( parser );
+            labels.add( label );
+        }
+    }
+
+    private static boolean failsRightAway( FirstSet firstSet, char c ) {
+        return firstSet != null && !firstSet.nullable() && !firstSet.chars().test( c );
+    }
+
+    /**
+     * Works the dispatch of a choice out on its first use, once the references in its alternatives are set.
+     */
+    static final class Lazy {
+        private final Parser<?, ?> first;
+        private final Parser<?, ?> second;
+        private final String label;
+        private Dispatch dispatch;
+
+        Lazy( Parser<?, ?> first, Parser<?, ?> second, String label ) {
+            this.first = first;
+            this.second = second;
+            this.label = label;
+        }
+
+        Dispatch get() {
+            var known = dispatch;
+            if ( known == null ) dispatch = known = new Dispatch( first, second, label );
+            return known;
+        }
+    }
+}
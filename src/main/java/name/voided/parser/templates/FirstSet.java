@@ -0,0 +1,90 @@
+package name.voided.parser.templates;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The characters a parser over characters can start with, worked out from its {@link ParserNode}s.
+ * <p>
+ * Chars is a superset: on anything else the parser fails where it started, unless it is nullable, that is it may match without consuming anything.
+ * If exact, the parser also consumes any character of chars before it matches or fails, so it can't fail where it started on one of them.
+ *
+ * @see Parser#firstSet()
+ */
+public record FirstSet(CharPredicate chars, boolean nullable, boolean exact) {
+    private static final CharPredicate NONE = c -> false;
+    private static final FirstSet EMPTY = new FirstSet( NONE, true, false );
+
+    /**
+     * The first set of the parser, null if it isn't known, like for parsers built from a plain function.
+     */
+    public static FirstSet of( Parser<?, ?> parser ) {
+        return of( parser, Collections.newSetFromMap( new IdentityHashMap<>() ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static FirstSet of( Parser<?, ?> parser, Set<Parser<?, ?>> visiting ) {
+        return switch ( parser.node ) {
+            case ParserNode.Opaque opaque -> opaque.firstSet();
+            case ParserNode.Until ignored -> null;
+            case ParserNode.Satisfy satisfy -> {
+                var property = ( Function<Character, Boolean> ) satisfy.property();
+                yield consuming( c -> property.apply( c ) );
+            }
+            case ParserNode.Char c -> consuming( c.predicate() );
+            case ParserNode.Span span -> span.min() > 0 ? consuming( span.chars() ) : new FirstSet( span.chars(), true, false );
+            case ParserNode.Literal literal -> literal.literal().isEmpty() ? EMPTY : consuming( CharPredicate.is( literal.literal().charAt( 0 ) ) );
+            case ParserNode.OneOfLiterals oneOf -> {
+                var chars = NONE;
+                var nullable = false;
+                for ( var i = 0; i < oneOf.literals().size(); i++ ) {
+                    var literal = oneOf.literals().literal( i );
+                    if ( literal.isEmpty() ) nullable = true;
+                    else chars = chars.or( CharPredicate.is( literal.charAt( 0 ) ) );
+                }
+                yield new FirstSet( chars, nullable, !nullable );
+            }
+            case ParserNode.Pure ignored -> EMPTY;
+            case ParserNode.End ignored -> EMPTY;
+            case ParserNode.Sequence sequence -> {
+                var first = of( sequence.first(), visiting );
+                if ( first == null || !first.nullable ) yield first;
+                var second = of( sequence.second(), visiting );
+                if ( second == null ) yield null;
+                yield new FirstSet( first.chars.or( second.chars ), second.nullable, false );
+            }
+            case ParserNode.Choice choice -> {
+                var first = of( choice.first(), visiting );
+                var second = first == null ? null : of( choice.second(), visiting );
+                if ( second == null ) yield null;
+                yield new FirstSet( first.chars.or( second.chars ), first.nullable || second.nullable, first.exact && second.exact );
+            }
+            case ParserNode.Map map -> of( map.parser(), visiting );
+            case ParserNode.Label label -> of( label.parser(), visiting );
+            case ParserNode.Cut cut -> of( cut.parser(), visiting );
+            case ParserNode.Recognize recognize -> of( recognize.parser(), visiting );
+            case ParserNode.Many many -> {
+                var element = of( many.parser(), visiting );
+                if ( element == null || many.atLeastOnce() ) yield element;
+                yield new FirstSet( element.chars, true, false );
+            }
+            case ParserNode.SepBy sepBy -> {
+                var element = of( sepBy.parser(), visiting );
+                yield element == null ? null : new FirstSet( element.chars, true, false );
+            }
+            case ParserNode.Ref ref -> {
+                // left recursion, the set would depend on itself
+                if ( !visiting.add( parser ) ) yield null;
+                var target = of( ref.target().get(), visiting );
+                visiting.remove( parser );
+                yield target;
+            }
+        };
+    }
+
+    private static FirstSet consuming( CharPredicate chars ) {
+        return new FirstSet( chars, false, true );
+    }
+}
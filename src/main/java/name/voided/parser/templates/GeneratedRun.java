@@ -0,0 +1,184 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.ParseContext;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.Slice;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+
+import java.util.List;
+import java.util.stream.Collector;
+
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
+import static name.voided.parser.templates.Parser.UNKNOWN;
+
+/**
+ * One run of a class generated by {@link ParserClassGenerator}.
+ * <p>
+ * Generated methods take the run and an input position and return the position after what they matched, with its value in {@link #value},
+ * or -1 with the failure kept here, the way the {@link ParsingMachine} keeps it. The failure methods return -1 for the generated code to return.
+ */
+final class GeneratedRun {
+    final CharSequenceStepper input;
+    final CharSequence text;
+    final int length;
+    final ParseContext context;
+
+    Object value;
+
+    private int failPos;
+    private String failLabel;
+    private String failMessage;
+    private ParseFailure failure;
+
+    GeneratedRun( CharSequenceStepper input ) {
+        this.input = input;
+        this.text = input.getText();
+        this.length = text.length();
+        this.context = input.getContext();
+    }
+
+    int mark( int pos ) {
+        return context.expectationMark( pos );
+    }
+
+    int unexpected( String label, int pos ) {
+        if ( pos >= context.farthestOffset() ) context.expect( stepperAt( pos ), UNKNOWN.equals( label ) ? null : label );
+        return fail( label, null, pos );
+    }
+
+    int fail( String label, String message, int pos ) {
+        failure = null;
+        failPos = pos;
+        failLabel = label;
+        failMessage = message;
+        return -1;
+    }
+
+    int relabel( String label ) {
+        failLabel = label;
+        return -1;
+    }
+
+    /**
+     * Relabels the failure of a labelled parser started at pos, recording the label as expected if nothing was consumed.
+     */
+    int expected( String label, int pos, int mark ) {
+        failLabel = label;
+        if ( failPos == pos && pos >= context.farthestOffset() ) context.expect( stepperAt( pos ), label, mark );
+        return -1;
+    }
+
+    /**
+     * The text from from to end as the value if the parser before matched.
+     */
+    int slice( int from, int end ) {
+        if ( end >= 0 ) value = Slice.of( text, from, end );
+        return end;
+    }
+
+    /**
+     * Commits the run up to end if the parser before matched.
+     */
+    int cut( int end ) {
+        if ( end >= 0 ) context.commit( end );
+        return end;
+    }
+
+    boolean cutPast( int pos ) {
+        return context.committedPast( pos );
+    }
+
+    Object collectNew( Collector<?, ?, ?> collector ) {
+        return collector.supplier().get();
+    }
+
+    /**
+     * Accumulates the value of the hit from at to end into the container,
+     * false with the failure kept if the collector rejected it, committing to end so the failure stays at the hit.
+     */
+    @SuppressWarnings( "unchecked" )
+    boolean collectAdd( Collector<?, ?, ?> collector, String label, Object container, int at, int end ) {
+        try {
+            ( ( Collector<Object, Object, ?> ) collector ).accumulator().accept( container, value );
+            return true;
+        } catch ( Rejection rejection ) {
+            context.commit( end );
+            fail( label, rejection.getMessage(), at );
+            failure = ParseFailure.rejected( label, rejection.getMessage(), input.at( at ) );
+            return false;
+        }
+    }
+
+    /**
+     * Finishes the container into the value, returns pos.
+     */
+    @SuppressWarnings( "unchecked" )
+    int collectEnd( Collector<?, ?, ?> collector, Object container, int pos ) {
+        value = ( ( Collector<?, Object, ?> ) collector ).finisher().apply( container );
+        return pos;
+    }
+
+    int span( CharClass chars, int min, ParserNode.Span.Take take, String label, int pos ) {
+        var end = chars.span( text, pos, length );
+        if ( end - pos < min ) return unexpected( label, pos );
+        value = take.of( text, pos, end );
+        if ( value == null ) return fail( label, ParserNode.Span.Take.TOO_LARGE, pos );
+        if ( end >= context.farthestOffset() ) context.expect( stepperAt( end ), UNKNOWN.equals( label ) ? null : label );
+        return end;
+    }
+
+    int literal( String literal, String label, int pos ) {
+        var end = Literals.match( literal, label, input, pos );
+        if ( end < 0 ) return fail( label, null, ~end );
+        value = literal;
+        return end;
+    }
+
+    int literals( Literals literals, List<?> values, String label, int pos ) {
+        var index = literals.match( input, pos );
+        if ( index < 0 ) return fail( label, null, ~index );
+        value = values.get( index );
+        return pos + literals.literal( index ).length();
+    }
+
+    int notAtEnd( int pos ) {
+        if ( pos >= context.farthestOffset() ) context.expect( stepperAt( pos ), "end of input" );
+        return fail( "?end", "there is more input", pos );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    int call( Parser<?, ?> parser, int pos ) {
+        return switch ( ( ( Parser<Character, Object> ) parser ).parse( input.at( pos ) ) ) {
+            case Result.Success<Tuple2<Object, IStepper<Character>>, ParseFailure> success -> {
+                value = success.value().v0;
+                yield ( int ) success.value().v1.getOffset();
+            }
+            case Result.Failure<Tuple2<Object, IStepper<Character>>, ParseFailure> failed -> {
+                failure = failed.value();
+                failLabel = failure.label();
+                failPos = ( int ) failure.offset();
+                yield -1;
+            }
+        };
+    }
+
+    Result<Tuple2<Object, IStepper<Character>>, ParseFailure> result( int end ) {
+        if ( end >= 0 ) return success( Tuples.of( value, input.at( end ) ) );
+        if ( failure != null ) return failure( failure.withLabel( failLabel ) );
+        if ( failMessage != null ) return failure( ParseFailure.of( failLabel, failMessage, input.at( failPos ) ) );
+        return failure( ParseFailure.unexpected( failLabel, input.at( failPos ) ) );
+    }
+
+    /**
+     * Expectations are mostly recorded at the farthest failure again, which already has a stepper.
+     */
+    private IStepper<?> stepperAt( int offset ) {
+        var farthest = context.farthestFailure();
+        if ( farthest != null && farthest.getOffset() == offset ) return farthest;
+        return input.at( offset );
+    }
+}
@@ -0,0 +1,147 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.CharSequenceStepper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static name.voided.parser.templates.Parser.UNKNOWN;
+
+/**
+ * Literals matched against text in memory as a whole rather than a character parser at a time.
+ * <p>
+ * A set of literals is put together in a trie, telling which of them the text starts with in one pass over it.
+ * It matches like an ordered choice between the literals: the first of them the text starts with wins,
+ * and the ones before it are recorded as expected where they stopped matching, as their character parsers would have.
+ */
+final public class Literals {
+    private final String[] literals;
+    private final String[] labels;
+    // the trie, node 0 is the root: the children of a node by their character, and the first literal ending there or -1
+    private final char[][] keys;
+    private final int[][] children;
+    private final int[] ending;
+
+    private Literals( String[] literals, char[][] keys, int[][] children, int[] ending ) {
+        this.literals = literals;
+        this.labels = Arrays.stream( literals ).map( literal -> "'" + literal + "'" ).toArray( String[]::new );
+        this.keys = keys;
+        this.children = children;
+        this.ending = ending;
+    }
+
+    public static Literals of( List<String> literals ) {
+        if ( literals.isEmpty() ) throw new IllegalArgumentException( "No literals to choose from" );
+        var keys = new ArrayList<char[]>();
+        var children = new ArrayList<int[]>();
+        var ending = new ArrayList<Integer>();
+        keys.add( new char[0] );
+        children.add( new int[0] );
+        ending.add( -1 );
+
+        for ( var i = 0; i < literals.size(); i++ ) {
+            var node = 0;
+            for ( var c : literals.get( i ).toCharArray() ) {
+                var child = indexOf( keys.get( node ), c );
+                if ( child < 0 ) {
+                    var size = keys.get( node ).length;
+                    var nodeKeys = Arrays.copyOf( keys.get( node ), size + 1 );
+                    var nodeChildren = Arrays.copyOf( children.get( node ), size + 1 );
+                    nodeKeys[size] = c;
+                    nodeChildren[size] = keys.size();
+                    keys.set( node, nodeKeys );
+                    children.set( node, nodeChildren );
+                    keys.add( new char[0] );
+                    children.add( new int[0] );
+                    ending.add( -1 );
+                    node = nodeChildren[size];
+                } else node = children.get( node )[child];
+            }
+            if ( ending.get( node ) < 0 ) ending.set( node, i );
+        }
+
+        return new Literals( literals.toArray( String[]::new ),
+                keys.toArray( char[][]::new ),
+                children.toArray( int[][]::new ),
+                ending.stream().mapToInt( Integer::intValue ).toArray() );
+    }
+
+    public int size() {
+        return literals.length;
+    }
+
+    public String literal( int i ) {
+        return literals[i];
+    }
+
+    /**
+     * The label of a choice between the literals, the one {@link Parser#orElse} would give it.
+     */
+    public String label() {
+        var label = labels[0];
+        for ( var i = 1; i < labels.length; i++ ) label = "[" + label + " orElse " + labels[i] + "]";
+        return label;
+    }
+
+    /**
+     * Which of the literals the input starts with at from, the first of them if there are several.
+     * If none does, returns the complement of the offset the last one failed at.
+     */
+    public int match( CharSequenceStepper input, int from ) {
+        var text = input.getText();
+        var length = text.length();
+        var node = 0;
+        var winner = ending[0];
+        var i = from;
+        while ( winner != 0 && i < length ) {
+            var child = indexOf( keys[node], text.charAt( i ) );
+            if ( child < 0 ) break;
+            node = children[node][child];
+            i++;
+            if ( ending[node] >= 0 && ( winner < 0 || ending[node] < winner ) ) winner = ending[node];
+        }
+
+        // the literals tried before the winner failed within what the trie followed, only record them if that can reach the farthest failure
+        var failed = winner < 0 ? literals.length : winner;
+        if ( i >= input.getContext().farthestOffset() ) {
+            for ( var l = 0; l < failed; l++ ) match( literals[l], labels[l], input, from );
+        }
+        if ( winner >= 0 ) return winner;
+        return ~( from + commonPrefix( literals[literals.length - 1], text, from ) );
+    }
+
+    /**
+     * Matches literal, labelled label, at from in one comparison.
+     * Returns the offset after it, or the complement of the offset it failed at, recording what was expected there.
+     */
+    public static int match( String literal, String label, CharSequenceStepper input, int from ) {
+        var text = input.getText();
+        if ( text instanceof String string ? string.startsWith( literal, from ) : commonPrefix( literal, text, from ) == literal.length() )
+            return from + literal.length();
+
+        var matched = commonPrefix( literal, text, from );
+        var at = from + matched;
+        var context = input.getContext();
+        if ( at >= context.farthestOffset() ) {
+            // a literal failing on its first character is expected as a whole, else the character it failed on is
+            var expected = matched == 0 ? label : String.valueOf( literal.charAt( matched ) );
+            context.expect( input.at( at ), UNKNOWN.equals( expected ) ? null : expected );
+        }
+        return ~at;
+    }
+
+    private static int commonPrefix( String literal, CharSequence text, int from ) {
+        var max = Math.min( literal.length(), text.length() - from );
+        var i = 0;
+        while ( i < max && literal.charAt( i ) == text.charAt( from + i ) ) i++;
+        return i;
+    }
+
+    private static int indexOf( char[] keys, char c ) {
+        for ( var i = 0; i < keys.length; i++ ) {
+            if ( keys[i] == c ) return i;
+        }
+        return -1;
+    }
+}
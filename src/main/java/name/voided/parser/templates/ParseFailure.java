@@ -0,0 +1,129 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.ByteBufferStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.IStepper.Position;
+
+import java.util.List;
+
+import static name.voided.parser.templates.Parser.UNKNOWN;
+
+/**
+ * Describes why a parser failed: the label of the parser and where in the input it failed.
+ * <p>
+ * Most failures are thrown away by backtracking, so nothing is formatted up front.
+ * The message and the position are only worked out when somebody asks for them.
+ * <p>
+ * {@link #farthest()} gives the failure at the farthest offset reached during the run, with everything that was expected there.
+ */
+final public class ParseFailure {
+    private final String label;
+    private final IStepper<?> at;
+    private final String message;
+    private final List<String> expected;
+    // the farthest failure of the run, fixed once the run is over
+    private ParseFailure reached;
+
+    private ParseFailure( String label, IStepper<?> at, String message, List<String> expected ) {
+        this.label = label;
+        this.at = at;
+        this.message = message;
+        this.expected = expected;
+    }
+
+    /**
+     * A failure on whatever element is at the stepper, or on the end of the input.
+     */
+    public static ParseFailure unexpected( String label, IStepper<?> at ) {
+        return new ParseFailure( label, at, null, List.of() );
+    }
+
+    /**
+     * Like {@link #unexpected}, for a parser that looks at a single element: label is recorded as expected at the stepper.
+     */
+    public static ParseFailure expecting( String label, IStepper<?> at ) {
+        at.getContext().expect( at, UNKNOWN.equals( label ) ? null : label );
+        return unexpected( label, at );
+    }
+
+    public static ParseFailure of( String label, String message, IStepper<?> at ) {
+        return new ParseFailure( label, at, message, List.of() );
+    }
+
+    /**
+     * A failure on a hit the parser refused to take, see {@link Rejection}: it stays at the hit rather than moving to the farthest failure.
+     */
+    public static ParseFailure rejected( String label, String message, IStepper<?> at ) {
+        var rejected = new ParseFailure( label, at, message, List.of() );
+        rejected.reached = rejected;
+        return rejected;
+    }
+
+    public ParseFailure withLabel( String label ) {
+        if ( label.equals( this.label ) ) return this;
+        var relabelled = new ParseFailure( label, at, message, expected );
+        if ( reached != null ) relabelled.reached = reached == this ? relabelled : reached;
+        return relabelled;
+    }
+
+    /**
+     * This failure moved to the farthest offset any parser of the run failed at, listing what was expected there.
+     */
+    public ParseFailure farthest() {
+        if ( reached != null ) return reached;
+        var context = at.getContext();
+        var reached = context.farthestFailure();
+        if ( reached == null || reached.getOffset() < at.getOffset() ) return this;
+        return new ParseFailure( label, reached, reached.getOffset() == at.getOffset() ? message : null, context.expected() );
+    }
+
+    /**
+     * This failure with its farthest failure worked out, for when the run it belongs to is over and its expectations are gone.
+     */
+    ParseFailure settled() {
+        var settled = new ParseFailure( label, at, message, expected );
+        var farthest = farthest();
+        if ( farthest == this ) farthest = settled;
+        farthest.reached = farthest;
+        settled.reached = farthest;
+        return settled;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public long offset() {
+        return at.getOffset();
+    }
+
+    public Position position() {
+        return at.getPosition();
+    }
+
+    public List<String> expected() {
+        return expected;
+    }
+
+    public String message() {
+        if ( expected.isEmpty() ) return problem();
+        var last = expected.size() - 1;
+        var alternatives = last == 0
+                ? expected.get( 0 )
+                : String.join( ", ", expected.subList( 0, last ) ) + " or " + expected.get( last );
+        return problem() + ", expected " + alternatives;
+    }
+
+    private String problem() {
+        if ( message != null ) return message;
+        if ( !at.hasContent() ) return "No more input";
+        // UTF-8 read as bytes shows as the character it encodes
+        if ( at instanceof ByteBufferStepper bytes ) return "Unexpected '" + Character.toString( bytes.getCodePoint() ) + "'";
+        return "Unexpected '" + at.get() + "'";
+    }
+
+    @Override
+    public String toString() {
+        return "(" + label + ", " + message() + ", " + position() + ')';
+    }
+}
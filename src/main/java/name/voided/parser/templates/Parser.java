@@ -1,36 +1,70 @@
 package name.voided.parser.templates;
 
 import name.voided.datatypes.*;
-import name.voided.datatypes.IStepper.Position;
 import name.voided.datatypes.tuple.Tuple2;
-import name.voided.datatypes.tuple.Tuple3;
 import name.voided.datatypes.tuple.Tuples;
 import name.voided.parser.FluentParser;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collector;
 
 import static name.voided.datatypes.Result.failure;
 import static name.voided.datatypes.Result.success;
-import static name.voided.parser.FluentParser.concat;
 
 public class Parser<TIn, TOut> {
     public final static String UNKNOWN = "_unknown_";
+    private static final AtomicInteger memoIds = new AtomicInteger();
     private final ParserFunction<TIn, TOut> parserFn;
     public final String label;
+    public final ParserNode node;
 
     public Parser( String label, ParserFunction<TIn, TOut> parserFn ) {
+        this( label, parserFn, new ParserNode.Opaque() );
+    }
+
+    public Parser( String label, ParserFunction<TIn, TOut> parserFn, ParserNode node ) {
         this.parserFn = parserFn;
         this.label = label;
+        this.node = node;
     }
 
-    public Result<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> parse( ImmutableStepper<TIn> source ) {
-        return parserFn.parse( source );
+    /**
+     * Parses from source. Called from outside any other parse on the same input, this starts a run of its own:
+     * its expectations and commits don't leak into the next parse, and a failure keeps the farthest failure it reached.
+     */
+    public Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> parse( IStepper<TIn> source ) {
+        var context = source.getContext();
+        if ( context.running() ) return parserFn.parse( source );
+
+        context.start();
+        var end = source.getOffset();
+        try {
+            return switch ( parserFn.parse( source ) ) {
+                case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> {
+                    end = success.value().v1.getOffset();
+                    yield success;
+                }
+                case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> failure( failure.value().settled() );
+            };
+        } finally {
+            context.finish( end );
+        }
     }
 
-    public Result<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> parse( Iterator<TIn> source, TIn lineBreak ) {
+    /**
+     * Characters in memory, from a {@link CharSequenceIterator}, are read through a {@link CharSequenceStepper} instead of being stepped through one by one.
+     * Other iterators are stepped through by an {@link ImmutableStepper}, which goes back by resetting a {@link ResettableIterator}.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> parse( Iterator<TIn> source, TIn lineBreak ) {
+        if ( source instanceof CharSequenceIterator chars && lineBreak instanceof Character c )
+            return parse( ( IStepper<TIn> ) ( IStepper<?> ) new CharSequenceStepper( chars.remaining(), c ) );
         return parse( new ImmutableStepper<>( source, lineBreak ) );
     }
 
@@ -42,16 +76,47 @@ public class Parser<TIn, TOut> {
         return FluentParser.andThen( this, then );
     }
 
+    /**
+     * Tries or if this fails, unless this cut past where it started.
+     * On text in memory, a chain of choices starts right from the alternative the next character can start, see {@link FirstSet}.
+     */
     public Parser<TIn, TOut> orElse( Parser<TIn, TOut> or ) {
         var newLabel = "[" + label + " orElse " + or.label + "]";
-        return new Parser<TIn, TOut>( newLabel, ( str ) -> switch ( parse( str ) ) {
-            case Result.Success success -> success;
-            case Result.Failure ignored -> or.withLabel( newLabel ).parse( str );
-        } );
+        var dispatch = new Dispatch.Lazy( this, or, newLabel );
+        return new Parser<TIn, TOut>( newLabel, ( str ) -> {
+            // nested choices are dispatched by the outermost one, in one go
+            if ( str instanceof CharSequenceStepper input && dispatch.get().skips() )
+                return dispatch.get().parse( dispatch.get().start( input.getText(), ( int ) input.getOffset() ), str );
+            return switch ( parse( str ) ) {
+                case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> success;
+                case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> first -> {
+                    if ( str.getContext().committedPast( str.getOffset() ) ) yield first; // cut, no going back to try the other one
+                    yield switch ( or.parse( str ) ) {
+                        case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> success;
+                        case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> failure( failure.value().withLabel( newLabel ) );
+                    };
+                }
+            };
+        }, new ParserNode.Choice( this, or ) );
+    }
+
+    /**
+     * The characters this parser can start with, null if that isn't known.
+     */
+    public FirstSet firstSet() {
+        return FirstSet.of( this );
+    }
+
+    /**
+     * This parser as one that is only ever called as it is, declared to start with one of chars and to consume it before it matches or fails,
+     * so choices between it and others can skip it on anything else, see {@link FirstSet}.
+     */
+    public Parser<TIn, TOut> startingWith( CharPredicate chars ) {
+        return new Parser<>( label, parserFn, new ParserNode.Opaque( new FirstSet( chars, false, true ) ) );
     }
 
     public <TResult> Parser<TIn, TResult> map( Function<TOut, TResult> m ) {
-        return FluentParser.<TIn, TOut, TResult>mapParser( m ).apply( this ).withLabel( "[" + label + " mapped]" );
+        return FluentParser.<TIn, TOut, TResult>mapParser( m ).apply( this ).named( "[" + label + " mapped]" );
     }
 
     public <TOther> Parser<TIn, TOther> andThenDiscardingThis( Parser<TIn, TOther> then ) {
@@ -63,24 +128,183 @@ public class Parser<TIn, TOut> {
     }
 
     public <TSep> Parser<TIn, List<TOut>> sepBy( Parser<TIn, TSep> sep ) {
+        var following = sep.andThenDiscardingThis( this );
         return new Parser<>( "[" + label + " sepBy " + sep.label + "]", str -> switch ( parse( str ) ) {
-            case Result.Failure ignored -> success( Tuples.of( List.of(), str ) );
-            case Result.Success ignored -> this.andThen( FluentParser.many( sep.andThenDiscardingThis( this ) ),
-                    ( a, b ) -> concat( List.of( a ), b ) ).parse( str );
-        } );
+            case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> {
+                if ( str.getContext().committedPast( str.getOffset() ) ) yield failure( failure.value() );
+                yield success( Tuples.of( List.of(), str ) );
+            }
+            case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> first -> {
+                List<TOut> values = new ArrayList<>();
+                values.add( first.value().v0 );
+                yield FluentParser.collectMany( following, first.value().v1, values ).map( rest -> Tuples.of( values, rest ) );
+            }
+        }, new ParserNode.SepBy( this, sep, null ) );
+    }
+
+    /**
+     * Like {@link #sepBy}, but the hits go into collector as they come rather than into a list, its result is the value.
+     * A hit the accumulator of collector throws a {@link Rejection} for fails the parse where the hit starts.
+     */
+    public <TSep, A, R> Parser<TIn, R> sepBy( Parser<TIn, TSep> sep, Collector<? super TOut, A, R> collector ) {
+        var label = "[" + this.label + " sepBy " + sep.label + "]";
+        var followingLabel = "[" + sep.label + " andThen " + this.label + "]";
+        return new Parser<>( label, str -> {
+            var container = collector.supplier().get();
+            Result<IStepper<TIn>, ParseFailure> hits = switch ( parse( str ) ) {
+                case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> {
+                    if ( str.getContext().committedPast( str.getOffset() ) ) yield failure( failure.value() );
+                    yield success( str );
+                }
+                case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> first ->
+                        collectSeparated( sep, label, followingLabel, collector.accumulator(), container, str, first.value() );
+            };
+            return hits.map( rest -> Tuples.of( collector.finisher().apply( container ), rest ) );
+        }, new ParserNode.SepBy( this, sep, collector ) );
+    }
+
+    /**
+     * Accumulates hit, found at, and the hits following it after a separator into container, returns the stepper after the last one.
+     */
+    private <TSep, A> Result<IStepper<TIn>, ParseFailure> collectSeparated( Parser<TIn, TSep> sep, String label, String followingLabel,
+                                                                            BiConsumer<A, ? super TOut> accumulator, A container,
+                                                                            IStepper<TIn> at, Tuple2<TOut, IStepper<TIn>> hit ) {
+        IStepper<TIn> rest = null;
+        while ( true ) {
+            try {
+                accumulator.accept( container, hit.v0 );
+            } catch ( Rejection rejection ) {
+                // nothing up to the end of the hit is parsed again, so the failure stays where the hit starts
+                hit.v1.getContext().commit( hit.v1.getOffset() );
+                return failure( ParseFailure.rejected( label, rejection.getMessage(), at ) );
+            }
+            // a round succeeding without consuming anything would match forever
+            if ( rest != null && hit.v1.getOffset() == rest.getOffset() ) return success( rest );
+            rest = hit.v1;
+            ParseFailure missed = null;
+            switch ( sep.parse( rest ) ) {
+                case Result.Failure<Tuple2<TSep, IStepper<TIn>>, ParseFailure> failure -> missed = failure.value();
+                case Result.Success<Tuple2<TSep, IStepper<TIn>>, ParseFailure> separated -> {
+                    at = separated.value().v1;
+                    switch ( parse( at ) ) {
+                        case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> missed = failure.value();
+                        case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> next -> hit = next.value();
+                    }
+                }
+            }
+            if ( missed != null ) {
+                if ( rest.getContext().committedPast( rest.getOffset() ) ) return failure( missed.withLabel( followingLabel ) );
+                return success( rest );
+            }
+        }
+    }
+
+    /**
+     * Like {@link #sepBy}, but only counts the hits instead of collecting them.
+     */
+    public <TSep> Parser<TIn, Integer> skipSepBy( Parser<TIn, TSep> sep ) {
+        return andThen( FluentParser.skipMany( sep.andThenDiscardingThis( this ) ), ( first, rest ) -> rest + 1 )
+                .orElse( FluentParser.returnParser( 0 ) )
+                .named( "[" + label + " skipSepBy " + sep.label + "]" );
     }
 
+    /**
+     * Names the parser in its failures and in the expectations of the run:
+     * if it fails without consuming input, label is what was expected instead of whatever the parser tried inside.
+     */
     public Parser<TIn, TOut> withLabel( String label ) {
+        return new Parser<>( label, str -> {
+            var context = str.getContext();
+            var mark = context.expectationMark( str.getOffset() );
+            return switch ( parse( str ) ) {
+                case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> {
+                    if ( failure.value().offset() == str.getOffset() ) context.expect( str, label, mark );
+                    yield failure( failure.value().withLabel( label ) );
+                }
+                case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> success;
+            };
+        }, new ParserNode.Label( this, true ) );
+    }
+
+    /**
+     * Names the parser in its failures only, for combinators describing their structure rather than what they expect.
+     */
+    public Parser<TIn, TOut> named( String label ) {
         return new Parser<>( label, str -> switch ( parse( str ) ) {
-            case Result.Failure<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> failure -> failure( Tuples.of( label, failure.value().v1, failure.value().v2 ) );
-            case Result.Success<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> success -> success;
+            case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> failure( failure.value().withLabel( label ) );
+            case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> success;
+        }, new ParserNode.Label( this, false ) );
+    }
+
+    /**
+     * Commits the run once this parser succeeded: nothing before where it ended is parsed again.
+     * Choices and loops started before that point fail instead of trying something else,
+     * and inputs buffering what they read, like {@link ImmutableStepper}, let go of everything before it.
+     */
+    public Parser<TIn, TOut> cut() {
+        return new Parser<>( label, str -> {
+            var result = parse( str );
+            if ( result instanceof Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success ) {
+                var rest = success.value().v1;
+                rest.getContext().commit( rest.getOffset() );
+            }
+            return result;
+        }, new ParserNode.Cut( this ) );
+    }
+
+    /**
+     * Packrat mode: the result of this parser is remembered per input offset in the run's {@link MemoTable},
+     * so backtracking into it again at the same offset doesn't re-parse.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Parser<TIn, TOut> memoize() {
+        var id = memoIds.incrementAndGet();
+        return new Parser<>( label, str -> {
+            var memo = str.getContext().memo();
+            var known = memo.get( id, str.getOffset() );
+            if ( known != null ) return ( Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> ) known;
+
+            var result = parse( str );
+            memo.put( id, str.getOffset(), result );
+            return result;
         } );
     }
 
+    /**
+     * Lowers the parser into a flat program run by a {@link ParsingMachine} when parsing a {@link CharSequenceStepper},
+     * instead of going through the chain of parser functions. Parts built from plain functions are called as they are.
+     * Other inputs are parsed by this parser.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Parser<TIn, TOut> compile() {
+        var machine = ParserCompiler.compile( this );
+        return new Parser<>( label, str -> {
+            if ( str instanceof CharSequenceStepper chars )
+                return ( Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> ) ( Result<?, ParseFailure> ) machine.run( chars );
+            return parse( str );
+        }, node );
+    }
+
+    /**
+     * Like {@link #compile()}, but generates a hidden class with a method per parser instead of a program for the {@link ParsingMachine}.
+     * Worth it for grammars parsing a lot of input, generating and loading the class costs far more than lowering into a program.
+     */
+    @SuppressWarnings( "unchecked" )
+    public Parser<TIn, TOut> compileToBytecode() {
+        var generated = ParserClassGenerator.generate( this );
+        return new Parser<>( label, str -> {
+            if ( str instanceof CharSequenceStepper chars ) {
+                var run = new GeneratedRun( chars );
+                return ( Result<Tuple2<TOut, IStepper<TIn>>, ParseFailure> ) ( Result<?, ParseFailure> ) run.result( generated.parse( run, ( int ) chars.getOffset() ) );
+            }
+            return parse( str );
+        }, node );
+    }
+
     public Parser<TIn, TOut> peek( Parser<TIn, TOut> peeper ) {
         return new Parser<TIn, TOut>( label, str -> switch ( parse( str ) ) {
-            case Result.Failure<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> failure -> failure;
-            case Result.Success<Tuple2<TOut, ImmutableStepper<TIn>>, Tuple3<String, String, Position>> success -> switch ( peeper.parse( success.value().v1 ) ) {
+            case Result.Failure<Tuple2<TOut, IStepper<TIn>>, ParseFailure> failure -> failure;
+            case Result.Success<Tuple2<TOut, IStepper<TIn>>, ParseFailure> success -> switch ( peeper.parse( success.value().v1 ) ) {
                 case Result.Failure peep -> peep;
                 case Result.Success ignored -> success;
             };
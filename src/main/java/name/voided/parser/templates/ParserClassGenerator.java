@@ -0,0 +1,464 @@
+package name.voided.parser.templates;
+
+import name.voided.parser.templates.ClassFileWriter.Code;
+import name.voided.parser.templates.ClassFileWriter.Label;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static name.voided.parser.templates.ClassFileWriter.*;
+
+/**
+ * Turns the {@link ParserNode} graph of a parser into a hidden class with a static method per parser,
+ * loaded with {@link MethodHandles.Lookup#defineHiddenClassWithClassData}.
+ * <p>
+ * Character tests are inlined as bitmap checks, loops are plain loops and backtracking is nothing more than going on from a position kept in a local.
+ * Functions, predicates and opaque parsers are static final fields of the class, so the JIT sees a single target at every call.
+ */
+final class ParserClassGenerator {
+    interface Entry {
+        int parse( GeneratedRun run, int pos );
+    }
+
+    private static final String RUN = "name/voided/parser/templates/GeneratedRun";
+    private static final String METHOD = "(L" + RUN + ";I)I";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String CHAR_PREDICATE = "name/voided/parser/templates/CharPredicate";
+    private static final String CHAR_CLASS = "name/voided/parser/templates/CharClass";
+    private static final String TAKE = "name/voided/parser/templates/ParserNode$Span$Take";
+    private static final String LITERALS = "name/voided/parser/templates/Literals";
+    private static final String DISPATCH = "name/voided/parser/templates/Dispatch";
+    private static final String COLLECTOR = "java/util/stream/Collector";
+    private static final String FUNCTION = "java/util/function/Function";
+    private static final String BI_FUNCTION = "java/util/function/BiFunction";
+    private static final String PARSER = "name/voided/parser/templates/Parser";
+
+    private final ClassFileWriter writer = new ClassFileWriter( "name/voided/parser/templates/GeneratedParser", OBJECT );
+    private final Map<Parser<?, ?>, String> methods = new IdentityHashMap<>();
+    private final ArrayDeque<Parser<?, ?>> pending = new ArrayDeque<>();
+
+    private final List<Object> constants = new ArrayList<>();
+    private final List<String> constantTypes = new ArrayList<>();
+    private final Map<String, Map<Object, String>> constantFields = new HashMap<>();
+
+    private ParserClassGenerator() {
+    }
+
+    static Entry generate( Parser<?, ?> root ) {
+        var generator = new ParserClassGenerator();
+        var bytes = generator.emitClass( root );
+        try {
+            var lookup = MethodHandles.lookup().defineHiddenClassWithClassData( bytes, generator.constants.toArray(), true );
+            return ( Entry ) lookup.findConstructor( lookup.lookupClass(), MethodType.methodType( void.class ) ).invoke();
+        } catch ( Throwable e ) {
+            throw new IllegalStateException( "Could not load the class generated for " + root.label, e );
+        }
+    }
+
+    private byte[] emitClass( Parser<?, ?> root ) {
+        writer.addInterface( "name/voided/parser/templates/ParserClassGenerator$Entry" );
+        var rootMethod = methodOf( root );
+        while ( !pending.isEmpty() ) emit( pending.poll() );
+
+        var constructor = writer.new Code( 1 )
+                .local( ALOAD, 0 )
+                .invoke( INVOKESPECIAL, OBJECT, "<init>", "()V" )
+                .op( RETURN );
+        writer.method( ACC_PUBLIC, "<init>", "()V", constructor );
+
+        var entry = writer.new Code( 3 )
+                .local( ALOAD, 1 )
+                .local( ILOAD, 2 )
+                .invoke( INVOKESTATIC, writer.name(), rootMethod, METHOD )
+                .op( IRETURN );
+        writer.method( ACC_PUBLIC, "parse", METHOD, entry );
+
+        emitStaticInit();
+        return writer.toByteArray();
+    }
+
+    /**
+     * The constants come in as class data and are moved into static final fields.
+     */
+    private void emitStaticInit() {
+        var init = writer.new Code( 0 )
+                .invoke( INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;" )
+                .ldc( "_" )
+                .ldcClass( "[Ljava/lang/Object;" )
+                .invoke( INVOKESTATIC, "java/lang/invoke/MethodHandles", "classData",
+                        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;" )
+                .type( CHECKCAST, "[Ljava/lang/Object;" )
+                .local( ASTORE, 0 );
+        for ( var i = 0; i < constants.size(); i++ ) {
+            var type = constantTypes.get( i );
+            writer.field( ACC_STATIC | ACC_FINAL, "k" + i, "L" + type + ";" );
+            init.local( ALOAD, 0 ).iconst( i ).op( AALOAD ).type( CHECKCAST, type ).field( PUTSTATIC, writer.name(), "k" + i, "L" + type + ";" );
+        }
+        init.op( RETURN );
+        writer.method( ACC_STATIC, "<clinit>", "()V", init );
+    }
+
+    private String methodOf( Parser<?, ?> parser ) {
+        var known = methods.get( parser );
+        if ( known != null ) return known;
+        var name = "p" + methods.size();
+        methods.put( parser, name );
+        pending.add( parser );
+        return name;
+    }
+
+    private void emit( Parser<?, ?> parser ) {
+        var code = writer.new Code( 2 );
+        switch ( parser.node ) {
+            case ParserNode.Opaque ignored -> code
+                    .local( ALOAD, 0 )
+                    .field( GETSTATIC, writer.name(), constant( parser, PARSER ), "L" + PARSER + ";" )
+                    .local( ILOAD, 1 )
+                    .invoke( INVOKEVIRTUAL, RUN, "call", "(L" + PARSER + ";I)I" )
+                    .op( IRETURN );
+            case ParserNode.Satisfy satisfy -> emitCharTest( code, satisfy, parser.label );
+            case ParserNode.Char c -> emitCharTest( code, c, parser.label );
+            case ParserNode.Span span -> code
+                    .local( ALOAD, 0 )
+                    .field( GETSTATIC, writer.name(), constant( span.chars(), CHAR_CLASS ), "L" + CHAR_CLASS + ";" )
+                    .iconst( span.min() )
+                    .field( GETSTATIC, TAKE, span.take().name(), "L" + TAKE + ";" )
+                    .ldc( span.expected() )
+                    .local( ILOAD, 1 )
+                    .invoke( INVOKEVIRTUAL, RUN, "span", "(L" + CHAR_CLASS + ";IL" + TAKE + ";Ljava/lang/String;I)I" )
+                    .op( IRETURN );
+            case ParserNode.Literal literal -> code
+                    .local( ALOAD, 0 )
+                    .ldc( literal.literal() )
+                    .ldc( parser.label )
+                    .local( ILOAD, 1 )
+                    .invoke( INVOKEVIRTUAL, RUN, "literal", "(Ljava/lang/String;Ljava/lang/String;I)I" )
+                    .op( IRETURN );
+            case ParserNode.OneOfLiterals literals -> code
+                    .local( ALOAD, 0 )
+                    .field( GETSTATIC, writer.name(), constant( literals.literals(), LITERALS ), "L" + LITERALS + ";" )
+                    .field( GETSTATIC, writer.name(), constant( literals.values(), "java/util/List" ), "Ljava/util/List;" )
+                    .ldc( parser.label )
+                    .local( ILOAD, 1 )
+                    .invoke( INVOKEVIRTUAL, RUN, "literals", "(L" + LITERALS + ";Ljava/util/List;Ljava/lang/String;I)I" )
+                    .op( IRETURN );
+            case ParserNode.Pure pure -> code
+                    .local( ALOAD, 0 )
+                    .field( GETSTATIC, writer.name(), constant( pure.value(), OBJECT ), "L" + OBJECT + ";" )
+                    .field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" )
+                    .local( ILOAD, 1 )
+                    .op( IRETURN );
+            case ParserNode.Sequence sequence -> {
+                var failed = new Label();
+                call( code, sequence.first(), 1 ).op( DUP ).local( ISTORE, 1 ).jump( IFLT, failed );
+                code.local( ALOAD, 0 ).field( GETFIELD, RUN, "value", "L" + OBJECT + ";" ).local( ASTORE, 2 );
+                call( code, sequence.second(), 1 ).op( DUP ).local( ISTORE, 1 ).jump( IFLT, failed );
+                code.local( ALOAD, 0 )
+                        .field( GETSTATIC, writer.name(), constant( sequence.combiner(), BI_FUNCTION ), "L" + BI_FUNCTION + ";" )
+                        .local( ALOAD, 2 )
+                        .local( ALOAD, 0 ).field( GETFIELD, RUN, "value", "L" + OBJECT + ";" )
+                        .invokeInterface( BI_FUNCTION, "apply", "(L" + OBJECT + ";L" + OBJECT + ";)L" + OBJECT + ";", 3 )
+                        .field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" )
+                        .local( ILOAD, 1 )
+                        .op( IRETURN )
+                        .place( failed )
+                        .op( ICONST_M1 )
+                        .op( IRETURN );
+            }
+            case ParserNode.Choice ignored -> {
+                // the label of a nested choice is always replaced by the outer one, so nested choices are tried in one go
+                var matched = new Label();
+                var dispatch = Dispatch.of( parser );
+                var alternatives = dispatch.alternatives;
+                var labels = dispatch.labels;
+                if ( dispatch.skips() ) {
+                    // local 2 is the alternative to start from, the ones before it are jumped over
+                    code.field( GETSTATIC, writer.name(), constant( dispatch, DISPATCH ), "L" + DISPATCH + ";" )
+                            .local( ALOAD, 0 ).field( GETFIELD, RUN, "text", "Ljava/lang/CharSequence;" )
+                            .local( ILOAD, 1 )
+                            .invoke( INVOKEVIRTUAL, DISPATCH, "start", "(Ljava/lang/CharSequence;I)I" )
+                            .local( ISTORE, 2 );
+                }
+                for ( var i = 0; i < alternatives.size(); i++ ) {
+                    var skip = new Label();
+                    if ( dispatch.skips() && i < alternatives.size() - 1 ) code.local( ILOAD, 2 ).iconst( i + 1 ).jump( IF_ICMPGE, skip );
+                    call( code, alternatives.get( i ), 1 ).op( DUP ).jump( IFGE, matched ).op( POP );
+                    if ( i == alternatives.size() - 1 ) break;
+                    // cut past the choice: fail like the nested choices do, relabelled by those the alternative is the second one of
+                    var next = new Label();
+                    cutPast( code, 1 ).jump( IFEQ, next );
+                    if ( labels.get( i ) != null ) {
+                        code.local( ALOAD, 0 ).ldc( labels.get( i ) ).invoke( INVOKEVIRTUAL, RUN, "relabel", "(Ljava/lang/String;)I" );
+                    } else code.op( ICONST_M1 );
+                    code.op( IRETURN ).place( next ).place( skip );
+                }
+                code.local( ALOAD, 0 ).ldc( parser.label ).invoke( INVOKEVIRTUAL, RUN, "relabel", "(Ljava/lang/String;)I" )
+                        .place( matched )
+                        .op( IRETURN );
+            }
+            case ParserNode.Map map -> {
+                var failed = new Label();
+                call( code, map.parser(), 1 ).op( DUP ).local( ISTORE, 1 ).jump( IFLT, failed );
+                code.local( ALOAD, 0 )
+                        .field( GETSTATIC, writer.name(), constant( map.mapper(), FUNCTION ), "L" + FUNCTION + ";" )
+                        .local( ALOAD, 0 ).field( GETFIELD, RUN, "value", "L" + OBJECT + ";" )
+                        .invokeInterface( FUNCTION, "apply", "(L" + OBJECT + ";)L" + OBJECT + ";", 2 )
+                        .field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" )
+                        .local( ILOAD, 1 )
+                        .op( IRETURN )
+                        .place( failed );
+                if ( ParserCompiler.relabels( map.parser() ) ) {
+                    code.local( ALOAD, 0 ).ldc( map.parser().label ).invoke( INVOKEVIRTUAL, RUN, "relabel", "(Ljava/lang/String;)I" );
+                } else code.op( ICONST_M1 );
+                code.op( IRETURN );
+            }
+            case ParserNode.Label label -> {
+                var matched = new Label();
+                if ( label.expectation() ) {
+                    code.local( ALOAD, 0 ).local( ILOAD, 1 ).invoke( INVOKEVIRTUAL, RUN, "mark", "(I)I" ).local( ISTORE, 2 );
+                }
+                call( code, label.parser(), 1 ).op( DUP ).jump( IFGE, matched ).op( POP );
+                if ( label.expectation() ) {
+                    code.local( ALOAD, 0 ).ldc( parser.label ).local( ILOAD, 1 ).local( ILOAD, 2 )
+                            .invoke( INVOKEVIRTUAL, RUN, "expected", "(Ljava/lang/String;II)I" );
+                } else code.local( ALOAD, 0 ).ldc( parser.label ).invoke( INVOKEVIRTUAL, RUN, "relabel", "(Ljava/lang/String;)I" );
+                code.place( matched ).op( IRETURN );
+            }
+            case ParserNode.Many many -> {
+                var loop = new Label();
+                var done = new Label();
+                newList( code );
+                code.place( loop );
+                call( code, many.parser(), 1 ).op( DUP ).local( ISTORE, 3 ).jump( IFLT, done );
+                addValue( code );
+                // a parser succeeding without consuming anything would match forever
+                code.local( ILOAD, 3 ).local( ILOAD, 1 ).jump( IF_ICMPEQ, done )
+                        .local( ILOAD, 3 ).local( ISTORE, 1 )
+                        .jump( GOTO, loop )
+                        .place( done );
+                failIfCut( code );
+                if ( many.atLeastOnce() ) {
+                    var found = new Label();
+                    code.local( ALOAD, 2 ).invoke( INVOKEVIRTUAL, "java/util/ArrayList", "isEmpty", "()Z" ).jump( IFEQ, found )
+                            .local( ALOAD, 0 ).ldc( "manyAtLeastOnce: " + many.parser().label ).ldc( "Parser didn't find any hits" ).local( ILOAD, 1 )
+                            .invoke( INVOKEVIRTUAL, RUN, "fail", "(Ljava/lang/String;Ljava/lang/String;I)I" )
+                            .op( IRETURN )
+                            .place( found );
+                }
+                returnList( code );
+            }
+            case ParserNode.SepBy sepBy -> {
+                var loop = new Label();
+                var done = new Label();
+                var collector = sepBy.collector() == null ? null : constant( sepBy.collector(), COLLECTOR );
+                if ( collector == null ) newList( code );
+                else collect( code, collector, "collectNew", "(L" + COLLECTOR + ";)L" + OBJECT + ";" ).local( ASTORE, 2 );
+                // a hit the collector rejects fails where it starts, after a separator that is kept in local 4
+                var separated = collector == null ? 3 : 4;
+                call( code, sepBy.parser(), 1 ).op( DUP ).local( ISTORE, 3 ).jump( IFLT, done );
+                addValue( code, collector, parser.label, 1, done );
+                code.local( ILOAD, 3 ).local( ISTORE, 1 ).place( loop );
+                call( code, sepBy.separator(), 1 ).op( DUP ).local( ISTORE, separated ).jump( IFLT, done );
+                call( code, sepBy.parser(), separated ).op( DUP ).local( ISTORE, 3 ).jump( IFLT, done );
+                addValue( code, collector, parser.label, separated, done );
+                code.local( ILOAD, 3 ).local( ILOAD, 1 ).jump( IF_ICMPEQ, done )
+                        .local( ILOAD, 3 ).local( ISTORE, 1 )
+                        .jump( GOTO, loop )
+                        .place( done );
+                failIfCut( code );
+                if ( collector == null ) returnList( code );
+                else collect( code, collector, "collectEnd", "(L" + COLLECTOR + ";L" + OBJECT + ";I)I" ).op( IRETURN );
+            }
+            case ParserNode.Until until -> {
+                var loop = new Label();
+                var done = new Label();
+                var failed = new Label();
+                var progressed = new Label();
+                newList( code );
+                code.place( loop );
+                call( code, until.until(), 1 ).jump( IFGE, done );
+                cutPast( code, 1 ).jump( IFNE, failed );
+                call( code, until.parser(), 1 ).op( DUP ).local( ISTORE, 3 ).jump( IFLT, failed );
+                addValue( code );
+                code.local( ILOAD, 3 ).local( ILOAD, 1 ).jump( IF_ICMPNE, progressed )
+                        .local( ALOAD, 0 ).ldc( parser.label ).ldc( "Parser didn't consume any input" ).local( ILOAD, 1 )
+                        .invoke( INVOKEVIRTUAL, RUN, "fail", "(Ljava/lang/String;Ljava/lang/String;I)I" )
+                        .op( IRETURN )
+                        .place( progressed )
+                        .local( ILOAD, 3 ).local( ISTORE, 1 )
+                        .jump( GOTO, loop )
+                        .place( failed )
+                        .op( ICONST_M1 )
+                        .op( IRETURN )
+                        .place( done );
+                returnList( code );
+            }
+            case ParserNode.End ignored -> {
+                var end = new Label();
+                code.local( ILOAD, 1 ).op( ICONST_1 ).op( IADD ).local( ALOAD, 0 ).field( GETFIELD, RUN, "length", "I" ).jump( IF_ICMPGE, end )
+                        .local( ALOAD, 0 ).local( ILOAD, 1 ).invoke( INVOKEVIRTUAL, RUN, "notAtEnd", "(I)I" )
+                        .op( IRETURN )
+                        .place( end )
+                        .local( ALOAD, 0 )
+                        .field( GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;" )
+                        .field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" )
+                        .local( ILOAD, 1 )
+                        .op( IRETURN );
+            }
+            case ParserNode.Ref ref -> call( code, ref.target().get(), 1 ).op( IRETURN );
+            case ParserNode.Cut cut -> {
+                code.local( ALOAD, 0 );
+                call( code, cut.parser(), 1 ).invoke( INVOKEVIRTUAL, RUN, "cut", "(I)I" ).op( IRETURN );
+            }
+            case ParserNode.Recognize recognize -> {
+                code.local( ALOAD, 0 ).local( ILOAD, 1 );
+                call( code, recognize.parser(), 1 ).invoke( INVOKEVIRTUAL, RUN, "slice", "(II)I" ).op( IRETURN );
+            }
+        }
+        writer.method( ACC_STATIC, methods.get( parser ), METHOD, code );
+    }
+
+    /**
+     * Reads the next character into local 2, then matches it on the ASCII bitmap or the test,
+     * which is only called for characters outside of ASCII.
+     */
+    private void emitCharTest( Code code, ParserNode test, String label ) {
+        CharPredicate accepts = switch ( test ) {
+            case ParserNode.Char c -> c.predicate();
+            case ParserNode.Satisfy satisfy -> {
+                @SuppressWarnings( "unchecked" )
+                var property = ( Function<Character, Boolean> ) satisfy.property();
+                yield c -> property.apply( c );
+            }
+            default -> throw new IllegalArgumentException( "Not a character test: " + test );
+        };
+        long low = 0;
+        long high = 0;
+        for ( char c = 0; c < 128; c++ ) {
+            if ( !accepts.test( c ) ) continue;
+            if ( c < 64 ) {
+                low |= 1L << c;
+            } else high |= 1L << c;
+        }
+
+        var failed = new Label();
+        var nonAscii = new Label();
+        var upper = new Label();
+        var matched = new Label();
+        code.local( ILOAD, 1 ).local( ALOAD, 0 ).field( GETFIELD, RUN, "length", "I" ).jump( IF_ICMPGE, failed )
+                .local( ALOAD, 0 ).field( GETFIELD, RUN, "text", "Ljava/lang/CharSequence;" )
+                .local( ILOAD, 1 )
+                .invokeInterface( "java/lang/CharSequence", "charAt", "(I)C", 2 )
+                .local( ISTORE, 2 )
+                .local( ILOAD, 2 ).iconst( 128 ).jump( IF_ICMPGE, nonAscii )
+                .local( ILOAD, 2 ).iconst( 64 ).jump( IF_ICMPGE, upper );
+        bitTest( code, low, failed ).jump( GOTO, matched ).place( upper );
+        bitTest( code, high, failed ).jump( GOTO, matched ).place( nonAscii );
+        switch ( test ) {
+            case ParserNode.Char c -> code
+                    .field( GETSTATIC, writer.name(), constant( c.predicate(), CHAR_PREDICATE ), "L" + CHAR_PREDICATE + ";" )
+                    .local( ILOAD, 2 )
+                    .invokeInterface( CHAR_PREDICATE, "test", "(C)Z", 2 );
+            default -> code
+                    .field( GETSTATIC, writer.name(), constant( ( ( ParserNode.Satisfy ) test ).property(), FUNCTION ), "L" + FUNCTION + ";" )
+                    .local( ILOAD, 2 )
+                    .invoke( INVOKESTATIC, "java/lang/Character", "valueOf", "(C)Ljava/lang/Character;" )
+                    .invokeInterface( FUNCTION, "apply", "(L" + OBJECT + ";)L" + OBJECT + ";", 2 )
+                    .type( CHECKCAST, "java/lang/Boolean" )
+                    .invoke( INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z" );
+        }
+        code.jump( IFEQ, failed )
+                .place( matched )
+                .local( ALOAD, 0 )
+                .local( ILOAD, 2 )
+                .invoke( INVOKESTATIC, "java/lang/Character", "valueOf", "(C)Ljava/lang/Character;" )
+                .field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" )
+                .local( ILOAD, 1 ).op( ICONST_1 ).op( IADD )
+                .op( IRETURN )
+                .place( failed )
+                .local( ALOAD, 0 ).ldc( label ).local( ILOAD, 1 )
+                .invoke( INVOKEVIRTUAL, RUN, "unexpected", "(Ljava/lang/String;I)I" )
+                .op( IRETURN );
+    }
+
+    /**
+     * Jumps to failed unless the bit of the character in local 2 is set, the shift only takes its lower 6 bits.
+     */
+    private static Code bitTest( Code code, long bits, Label failed ) {
+        if ( bits == 0 ) return code.jump( GOTO, failed );
+        return code.ldc( bits ).local( ILOAD, 2 ).op( LUSHR ).op( L2I ).op( ICONST_1 ).op( IAND ).jump( IFEQ, failed );
+    }
+
+    private Code call( Code code, Parser<?, ?> parser, int posLocal ) {
+        return code.local( ALOAD, 0 ).local( ILOAD, posLocal ).invoke( INVOKESTATIC, writer.name(), methodOf( parser ), METHOD );
+    }
+
+    private static Code cutPast( Code code, int posLocal ) {
+        return code.local( ALOAD, 0 ).local( ILOAD, posLocal ).invoke( INVOKEVIRTUAL, RUN, "cutPast", "(I)Z" );
+    }
+
+    /**
+     * A loop that stopped on a failure after a cut past where the failing round started fails as a whole.
+     */
+    private static void failIfCut( Code code ) {
+        var go = new Label();
+        cutPast( code, 1 ).jump( IFEQ, go ).op( ICONST_M1 ).op( IRETURN ).place( go );
+    }
+
+    private static void newList( Code code ) {
+        code.type( NEW, "java/util/ArrayList" ).op( DUP ).invoke( INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V" ).local( ASTORE, 2 );
+    }
+
+    private static void addValue( Code code ) {
+        code.local( ALOAD, 2 ).local( ALOAD, 0 ).field( GETFIELD, RUN, "value", "L" + OBJECT + ";" )
+                .invoke( INVOKEVIRTUAL, "java/util/ArrayList", "add", "(L" + OBJECT + ";)Z" )
+                .op( POP );
+    }
+
+    /**
+     * Adds the value to the list in local 2, or accumulates it into the container there,
+     * jumping to rejected if the collector rejects the hit from the position in local at to the one in local 3.
+     */
+    private void addValue( Code code, String collector, String label, int at, Label rejected ) {
+        if ( collector == null ) {
+            addValue( code );
+            return;
+        }
+        code.local( ALOAD, 0 ).field( GETSTATIC, writer.name(), collector, "L" + COLLECTOR + ";" ).ldc( label )
+                .local( ALOAD, 2 ).local( ILOAD, at ).local( ILOAD, 3 )
+                .invoke( INVOKEVIRTUAL, RUN, "collectAdd", "(L" + COLLECTOR + ";Ljava/lang/String;L" + OBJECT + ";II)Z" )
+                .jump( IFEQ, rejected );
+    }
+
+    /**
+     * Calls the collecting method of the run with the collector, the container in local 2 and the position in local 1 as far as it takes them.
+     */
+    private Code collect( Code code, String collector, String method, String descriptor ) {
+        code.local( ALOAD, 0 ).field( GETSTATIC, writer.name(), collector, "L" + COLLECTOR + ";" );
+        if ( !method.equals( "collectNew" ) ) code.local( ALOAD, 2 );
+        if ( method.equals( "collectEnd" ) ) code.local( ILOAD, 1 );
+        return code.invoke( INVOKEVIRTUAL, RUN, method, descriptor );
+    }
+
+    private static void returnList( Code code ) {
+        code.local( ALOAD, 0 ).local( ALOAD, 2 ).field( PUTFIELD, RUN, "value", "L" + OBJECT + ";" ).local( ILOAD, 1 ).op( IRETURN );
+    }
+
+    /**
+     * Names the static final field holding value as type.
+     */
+    private String constant( Object value, String type ) {
+        return constantFields.computeIfAbsent( type, t -> new IdentityHashMap<>() ).computeIfAbsent( value, v -> {
+            constants.add( v );
+            constantTypes.add( type );
+            return "k" + ( constants.size() - 1 );
+        } );
+    }
+}
@@ -0,0 +1,256 @@
+package name.voided.parser.templates;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static name.voided.parser.templates.ParsingMachine.*;
+
+/**
+ * Lowers the {@link ParserNode} graph of a parser into a {@link ParsingMachine} program.
+ * <p>
+ * Parsers used in more than one place are emitted once, as a subroutine, everything else is inlined.
+ */
+final class ParserCompiler {
+    private int[] code = new int[64];
+    private int size = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+
+    private final Map<Parser<?, ?>, Integer> references = new IdentityHashMap<>();
+    private final Map<Parser<?, ?>, Integer> subroutines = new IdentityHashMap<>();
+    private final Map<Integer, Parser<?, ?>> calls = new HashMap<>();
+    private final ArrayDeque<Parser<?, ?>> pending = new ArrayDeque<>();
+
+    private ParserCompiler() {
+    }
+
+    static ParsingMachine compile( Parser<?, ?> root ) {
+        var compiler = new ParserCompiler();
+        compiler.count( root );
+        compiler.emit( root );
+        compiler.op( HALT );
+        compiler.emitSubroutines();
+        return new ParsingMachine( Arrays.copyOf( compiler.code, compiler.size ), compiler.constants.toArray() );
+    }
+
+    private void count( Parser<?, ?> parser ) {
+        if ( references.merge( parser, 1, Integer::sum ) > 1 ) return;
+        for ( var child : children( parser.node ) ) count( child );
+    }
+
+    private static List<Parser<?, ?>> children( ParserNode node ) {
+        return switch ( node ) {
+            case ParserNode.Sequence sequence -> List.of( sequence.first(), sequence.second() );
+            case ParserNode.Choice choice -> List.of( choice.first(), choice.second() );
+            case ParserNode.Map map -> List.of( map.parser() );
+            case ParserNode.Label label -> List.of( label.parser() );
+            case ParserNode.Many many -> List.of( many.parser() );
+            case ParserNode.SepBy sepBy -> List.of( sepBy.parser(), sepBy.separator() );
+            case ParserNode.Until until -> List.of( until.parser(), until.until() );
+            case ParserNode.Ref ref -> List.of( ref.target().get() );
+            case ParserNode.Cut cut -> List.of( cut.parser() );
+            case ParserNode.Recognize recognize -> List.of( recognize.parser() );
+            case ParserNode.Opaque ignored -> List.of();
+            case ParserNode.Satisfy ignored -> List.of();
+            case ParserNode.Char ignored -> List.of();
+            case ParserNode.Span ignored -> List.of();
+            case ParserNode.Literal ignored -> List.of();
+            case ParserNode.OneOfLiterals ignored -> List.of();
+            case ParserNode.Pure ignored -> List.of();
+            case ParserNode.End ignored -> List.of();
+        };
+    }
+
+    private boolean isSubroutine( Parser<?, ?> parser ) {
+        return references.getOrDefault( parser, 0 ) > 1 && !children( parser.node ).isEmpty();
+    }
+
+    private void emit( Parser<?, ?> parser ) {
+        if ( !isSubroutine( parser ) ) {
+            emitBody( parser );
+            return;
+        }
+        if ( !subroutines.containsKey( parser ) ) {
+            subroutines.put( parser, -1 );
+            pending.add( parser );
+        }
+        op( CALL );
+        calls.put( size, parser );
+        op( -1 );
+    }
+
+    private void emitSubroutines() {
+        while ( !pending.isEmpty() ) {
+            var parser = pending.poll();
+            subroutines.put( parser, size );
+            emitBody( parser );
+            op( RETURN );
+        }
+        calls.forEach( ( at, parser ) -> code[at] = subroutines.get( parser ) );
+    }
+
+    private void emitBody( Parser<?, ?> parser ) {
+        switch ( parser.node ) {
+            case ParserNode.Opaque ignored -> op( CALL_PARSER, constant( parser ) );
+            case ParserNode.Satisfy satisfy -> {
+                @SuppressWarnings( "unchecked" )
+                var property = ( Function<Character, Boolean> ) satisfy.property();
+                emitCharTest( SATISFY, c -> property.apply( c ), satisfy.property(), parser.label );
+            }
+            case ParserNode.Char c -> emitCharTest( CHAR, c.predicate(), c.predicate(), parser.label );
+            case ParserNode.Span span -> op( SPAN, constant( span.chars() ), span.min(), span.take().ordinal(), constant( span.expected() ) );
+            case ParserNode.Literal literal -> op( LITERAL, constant( literal.literal() ), constant( parser.label ) );
+            case ParserNode.OneOfLiterals literals -> op( LITERALS, constant( literals.literals() ), constant( literals.values() ), constant( parser.label ) );
+            case ParserNode.Pure pure -> op( PUSH, constant( pure.value() ) );
+            case ParserNode.Sequence sequence -> {
+                emit( sequence.first() );
+                emit( sequence.second() );
+                op( ACTION2, constant( sequence.combiner() ) );
+            }
+            case ParserNode.Choice ignored -> {
+                // nested choices in one go, each alternative named like the nested choices would name it
+                var dispatch = Dispatch.of( parser );
+                var alternatives = dispatch.alternatives;
+                var targets = dispatch.skips() ? op( DISPATCH, constant( dispatch ) ) : -1;
+                if ( targets >= 0 ) targets = op( new int[alternatives.size()] ) - alternatives.size();
+                var commits = new ArrayList<Integer>();
+                for ( var i = 0; i < alternatives.size(); i++ ) {
+                    if ( targets >= 0 ) code[targets + i] = size;
+                    var last = i == alternatives.size() - 1;
+                    var alternative = last ? -1 : op( CHOICE, -1 );
+                    var label = dispatch.labels.get( i );
+                    if ( label != null ) op( NAME, constant( label ) );
+                    emit( alternatives.get( i ) );
+                    if ( label != null ) op( END_REGION );
+                    if ( last ) break;
+                    commits.add( op( COMMIT, -1 ) );
+                    patch( alternative );
+                }
+                commits.forEach( this::patch );
+            }
+            case ParserNode.Map map -> {
+                var named = relabels( map.parser() );
+                if ( named ) op( NAME, constant( map.parser().label ) );
+                emit( map.parser() );
+                if ( named ) op( END_REGION );
+                op( ACTION1, constant( map.mapper() ) );
+            }
+            case ParserNode.Label label -> {
+                op( label.expectation() ? LABEL : NAME, constant( parser.label ) );
+                emit( label.parser() );
+                op( END_REGION );
+            }
+            case ParserNode.Many many -> {
+                op( LIST_NEW );
+                var exit = op( CHOICE, -1 );
+                var body = size;
+                emit( many.parser() );
+                op( LIST_ADD );
+                op( PARTIAL_COMMIT, body );
+                patch( exit );
+                if ( many.atLeastOnce() )
+                    op( REQUIRE_HITS, constant( "manyAtLeastOnce: " + many.parser().label ), constant( "Parser didn't find any hits" ) );
+            }
+            case ParserNode.SepBy sepBy -> {
+                var collector = sepBy.collector() == null ? -1 : constant( sepBy.collector() );
+                if ( collector < 0 ) op( LIST_NEW );
+                else op( COLLECT_NEW, collector );
+                var none = op( CHOICE, -1 );
+                if ( collector >= 0 ) op( MARK );
+                emit( sepBy.parser() );
+                if ( collector < 0 ) op( LIST_ADD );
+                else op( COLLECT_ADD, collector, constant( parser.label ) );
+                var first = op( COMMIT, -1 );
+                patch( first );
+                var exit = op( CHOICE, -1 );
+                var body = size;
+                emit( sepBy.separator() );
+                op( POP );
+                if ( collector >= 0 ) op( MARK );
+                emit( sepBy.parser() );
+                if ( collector < 0 ) op( LIST_ADD );
+                else op( COLLECT_ADD, collector, constant( parser.label ) );
+                op( PARTIAL_COMMIT, body );
+                patch( none );
+                patch( exit );
+                if ( collector >= 0 ) op( COLLECT_END, collector );
+            }
+            case ParserNode.Until until -> {
+                op( LIST_NEW );
+                var start = size;
+                var loop = op( CHOICE, -1 );
+                emit( until.until() );
+                var exit = op( BACK_COMMIT, -1 );
+                patch( loop );
+                op( MARK );
+                emit( until.parser() );
+                op( REQUIRE_PROGRESS, constant( parser.label ), constant( "Parser didn't consume any input" ) );
+                op( LIST_ADD );
+                op( JUMP, start );
+                patch( exit );
+            }
+            case ParserNode.End ignored -> op( END );
+            case ParserNode.Ref ref -> emit( ref.target().get() );
+            case ParserNode.Cut cut -> {
+                emit( cut.parser() );
+                op( CUT );
+            }
+            case ParserNode.Recognize recognize -> {
+                op( MARK );
+                emit( recognize.parser() );
+                op( SLICE );
+            }
+        }
+    }
+
+    /**
+     * Character tests take a bitmap of the ASCII characters they accept, worked out here,
+     * so the machine only calls the test for characters outside of ASCII.
+     */
+    private void emitCharTest( int instruction, CharPredicate accepts, Object test, String label ) {
+        var ascii = new int[4];
+        for ( char c = 0; c < 128; c++ ) {
+            if ( accepts.test( c ) ) ascii[c >> 5] |= 1 << c;
+        }
+        op( instruction, ascii[0], ascii[1], ascii[2], ascii[3], constant( test ), constant( label ) );
+    }
+
+    /**
+     * Whether failures of the parser might carry a label other than its own.
+     */
+    static boolean relabels( Parser<?, ?> parser ) {
+        return !( parser.node instanceof ParserNode.Char
+                || parser.node instanceof ParserNode.Satisfy
+                || parser.node instanceof ParserNode.Label );
+    }
+
+    /**
+     * Appends an instruction, returns the index after it, where its last operand is patched by {@link #patch}.
+     */
+    private int op( int... instruction ) {
+        if ( size + instruction.length > code.length ) code = Arrays.copyOf( code, Math.max( code.length * 2, size + instruction.length ) );
+        System.arraycopy( instruction, 0, code, size, instruction.length );
+        size += instruction.length;
+        return size;
+    }
+
+    /**
+     * Points the jump ending at end to the current end of the program.
+     */
+    private void patch( int end ) {
+        code[end - 1] = size;
+    }
+
+    private int constant( Object value ) {
+        return constantIndices.computeIfAbsent( value, v -> {
+            constants.add( v );
+            return constants.size() - 1;
+        } );
+    }
+}
@@ -0,0 +1,132 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.Slice;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * What a {@link Parser} is made of, as far as the combinator that built it is known.
+ * <p>
+ * Parsing always goes through the parser function; the node is what {@link Parser#compile()} lowers into a program.
+ * Parsers built from a plain function are {@link Opaque} and get called as they are.
+ */
+public sealed interface ParserNode {
+
+    /**
+     * The first set is null unless declared with {@link Parser#startingWith}.
+     */
+    record Opaque(FirstSet firstSet) implements ParserNode {
+        public Opaque() {
+            this( null );
+        }
+    }
+
+    record Satisfy(Function<?, Boolean> property) implements ParserNode {
+    }
+
+    record Char(CharPredicate predicate) implements ParserNode {
+    }
+
+    record Pure(Object value) implements ParserNode {
+    }
+
+    record Sequence(Parser<?, ?> first, Parser<?, ?> second, BiFunction<?, ?, ?> combiner) implements ParserNode {
+    }
+
+    record Choice(Parser<?, ?> first, Parser<?, ?> second) implements ParserNode {
+    }
+
+    record Map(Parser<?, ?> parser, Function<?, ?> mapper) implements ParserNode {
+    }
+
+    /**
+     * The parser relabelled to the label of the parser owning this node, recording it as expectation or not.
+     */
+    record Label(Parser<?, ?> parser, boolean expectation) implements ParserNode {
+    }
+
+    record Many(Parser<?, ?> parser, boolean atLeastOnce) implements ParserNode {
+    }
+
+    /**
+     * A run of at least min characters of the class, yielding what take makes of it.
+     * Expected is what the characters are called in expectations.
+     */
+    record Span(CharClass chars, String expected, int min, Take take) implements ParserNode {
+
+        public enum Take {
+            LENGTH, STRING, SLICE, DIGITS;
+
+            /**
+             * What a run fails with when it has no value, digits past {@link Integer#MAX_VALUE}.
+             */
+            public static final String TOO_LARGE = "Too large for an int";
+
+            /**
+             * The value of the run of text from from to to, null if it has none.
+             */
+            public Object of( CharSequence text, int from, int to ) {
+                return switch ( this ) {
+                    case LENGTH -> to - from;
+                    case STRING -> text.subSequence( from, to ).toString();
+                    case SLICE -> Slice.of( text, from, to );
+                    case DIGITS -> {
+                        var value = 0;
+                        for ( var i = from; i < to; i++ ) {
+                            var digit = Character.digit( text.charAt( i ), 10 );
+                            if ( value > ( Integer.MAX_VALUE - digit ) / 10 ) yield null;
+                            value = value * 10 + digit;
+                        }
+                        yield value;
+                    }
+                };
+            }
+        }
+    }
+
+    /**
+     * A literal compared as a whole, see {@link Literals#match(String, String, name.voided.datatypes.CharSequenceStepper, int)}.
+     */
+    record Literal(String literal) implements ParserNode {
+    }
+
+    /**
+     * The value paired with the first of the literals the input starts with, see {@link Literals}.
+     */
+    record OneOfLiterals(Literals literals, List<?> values) implements ParserNode {
+    }
+
+    /**
+     * Hits collected with collector as they come, into a list if it is null.
+     */
+    record SepBy(Parser<?, ?> parser, Parser<?, ?> separator, Collector<?, ?, ?> collector) implements ParserNode {
+    }
+
+    record Until(Parser<?, ?> parser, Parser<?, ?> until) implements ParserNode {
+    }
+
+    record End() implements ParserNode {
+    }
+
+    /**
+     * The parser committing the run up to where it ended, see {@link Parser#cut()}.
+     */
+    record Cut(Parser<?, ?> parser) implements ParserNode {
+    }
+
+    /**
+     * The text the parser matched instead of its value, see {@link name.voided.parser.FluentParser#recognize}.
+     */
+    record Recognize(Parser<?, ?> parser) implements ParserNode {
+    }
+
+    /**
+     * A parser defined elsewhere, only looked up once it is needed, see {@link ParserRef}.
+     */
+    record Ref(Supplier<? extends Parser<?, ?>> target) implements ParserNode {
+    }
+}
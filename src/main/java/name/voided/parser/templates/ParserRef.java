@@ -0,0 +1,64 @@
+package name.voided.parser.templates;
+
+import java.util.function.Supplier;
+
+/**
+ * Stands in for a parser that doesn't exist yet, to write down grammars referring to themselves.
+ * <p>
+ * Either {@link #set} the parser once it is built, or give a supplier building it when it is first needed.
+ * The parser is resolved only once, after that the reference is safe to share between threads.
+ */
+final public class ParserRef<TIn, TOut> extends Parser<TIn, TOut> {
+    private final Target<TIn, TOut> target;
+
+    public ParserRef( String label ) {
+        this( new Target<>( label, null ) );
+    }
+
+    public ParserRef( String label, Supplier<Parser<TIn, TOut>> supplier ) {
+        this( new Target<>( label, supplier ) );
+    }
+
+    private ParserRef( Target<TIn, TOut> target ) {
+        super( target.label, str -> target.get().parse( str ), new ParserNode.Ref( target ) );
+        this.target = target;
+    }
+
+    public void set( Parser<TIn, TOut> parser ) {
+        target.set( parser );
+    }
+
+    public Parser<TIn, TOut> get() {
+        return target.get();
+    }
+
+    private static final class Target<TIn, TOut> implements Supplier<Parser<TIn, TOut>> {
+        private final String label;
+        private Supplier<Parser<TIn, TOut>> supplier;
+        private volatile Parser<TIn, TOut> parser;
+
+        private Target( String label, Supplier<Parser<TIn, TOut>> supplier ) {
+            this.label = label;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public Parser<TIn, TOut> get() {
+            var resolved = parser;
+            if ( resolved != null ) return resolved;
+            synchronized ( this ) {
+                if ( parser == null ) {
+                    if ( supplier == null ) throw new IllegalStateException( "Parser " + label + " is used before it was set" );
+                    parser = supplier.get();
+                    supplier = null;
+                }
+                return parser;
+            }
+        }
+
+        private synchronized void set( Parser<TIn, TOut> parser ) {
+            if ( this.parser != null || supplier != null ) throw new IllegalStateException( "Parser " + label + " is already set" );
+            this.parser = parser;
+        }
+    }
+}
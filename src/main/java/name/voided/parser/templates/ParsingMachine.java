@@ -0,0 +1,460 @@
+package name.voided.parser.templates;
+
+import name.voided.datatypes.CharSequenceStepper;
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.ParseContext;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.Slice;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.datatypes.tuple.Tuples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+import static name.voided.datatypes.Result.failure;
+import static name.voided.datatypes.Result.success;
+import static name.voided.parser.templates.Parser.UNKNOWN;
+
+/**
+ * Runs a parser that was lowered by {@link ParserCompiler} into a flat program over a character input.
+ * <p>
+ * The program is an int array of instructions followed by their operands, which are jump targets or indices into the constants.
+ * Parsed values live on a value stack, alternatives and labelled regions on a backtrack stack:
+ * when matching fails the machine unwinds to the last alternative, restoring input position and value stack,
+ * relabelling the failure and recording expectations for every region it leaves on the way, like the parser functions do.
+ */
+final public class ParsingMachine {
+    // match one char, ASCII on a bitmap, anything else on a CharPredicate: 4 ints of bitmap, predicate, label
+    static final int CHAR = 0;
+    // match one char, ASCII on a bitmap, anything else on a Function<Character, Boolean>: 4 ints of bitmap, property, label
+    static final int SATISFY = 1;
+    // push a constant: value
+    static final int PUSH = 2;
+    // replace the top value by f(top): function
+    static final int ACTION1 = 3;
+    // replace the two top values by f(below, top): function
+    static final int ACTION2 = 4;
+    static final int POP = 5;
+    static final int LIST_NEW = 6;
+    // pop a value and add it to the list below it
+    static final int LIST_ADD = 7;
+    // remember an alternative continuing at target: target
+    static final int CHOICE = 8;
+    // drop the last alternative and jump: target
+    static final int COMMIT = 9;
+    // loop back to target if input was consumed since the last alternative was taken, else drop it and fall through: target
+    static final int PARTIAL_COMMIT = 10;
+    // drop the last alternative, go back to its input position and values and jump: target
+    static final int BACK_COMMIT = 11;
+    static final int JUMP = 12;
+    // start of a region failing with its label, recorded as expectation when failing where it started: label
+    static final int LABEL = 13;
+    // start of a region failing with its label: label
+    static final int NAME = 14;
+    static final int END_REGION = 15;
+    // fail if the list on top is empty: label, message
+    static final int REQUIRE_HITS = 16;
+    // succeed with true at the end of the input
+    static final int END = 17;
+    // run a parser as it is: parser
+    static final int CALL_PARSER = 18;
+    // call a subroutine: target
+    static final int CALL = 19;
+    static final int RETURN = 20;
+    static final int HALT = 21;
+    // commit the run up to the current position, alternatives from before it are skipped when backtracking
+    static final int CUT = 22;
+    // match a run of chars in a class, push what the take makes of it: class, min, take ordinal, label
+    static final int SPAN = 23;
+    // match a literal as a whole, push it: literal, label
+    static final int LITERAL = 24;
+    // match the first of a set of literals, push its value: literals, values, label
+    static final int LITERALS = 25;
+    // jump to the alternative of a choice the next char starts from: dispatch, then a target per alternative
+    static final int DISPATCH = 26;
+    // push the current position
+    static final int MARK = 27;
+    // replace the value on top and the position below it by the slice of the text from that position
+    static final int SLICE = 28;
+    // push a new container of a collector: collector
+    static final int COLLECT_NEW = 29;
+    // pop a value and the position its hit started at, accumulate the value into the container below them, failing there if it is rejected: collector, label
+    static final int COLLECT_ADD = 30;
+    // replace the container on top by the result the collector finishes it into: collector
+    static final int COLLECT_END = 31;
+    // fail unless input was consumed since the position below the value on top, else drop that position: label, message
+    static final int REQUIRE_PROGRESS = 32;
+    private static final ParserNode.Span.Take[] TAKES = ParserNode.Span.Take.values();
+
+    private final int[] code;
+    private final Object[] constants;
+
+    ParsingMachine( int[] code, Object[] constants ) {
+        this.code = code;
+        this.constants = constants;
+    }
+
+    public int size() {
+        return code.length;
+    }
+
+    public Result<Tuple2<Object, IStepper<Character>>, ParseFailure> run( CharSequenceStepper input ) {
+        return new Run( input ).execute();
+    }
+
+    private final class Run {
+        private static final int ALTERNATIVE = 0;
+        private static final int EXPECTATION = 1;
+        private static final int NAMED = 2;
+
+        private final CharSequenceStepper input;
+        private final CharSequence text;
+        private final int length;
+        private final ParseContext context;
+
+        private int pos;
+
+        private Object[] values = new Object[16];
+        private int sp = 0;
+
+        private int[] calls = new int[16];
+        private int csp = 0;
+
+        private int[] kinds = new int[16];
+        private int[] targets = new int[16];
+        private int[] positions = new int[16];
+        private int[] valueDepths = new int[16];
+        private int[] callDepths = new int[16];
+        private int[] marks = new int[16];
+        private int bsp = 0;
+
+        private int failPos;
+        private String failLabel;
+        private String failMessage;
+        private ParseFailure failure;
+
+        private Run( CharSequenceStepper input ) {
+            this.input = input;
+            this.text = input.getText();
+            this.length = text.length();
+            this.context = input.getContext();
+            this.pos = ( int ) input.getOffset();
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private Result<Tuple2<Object, IStepper<Character>>, ParseFailure> execute() {
+            // the registers live in locals while running, the fields only carry them over backtracking
+            var pc = 0;
+            var pos = this.pos;
+            while ( true ) {
+                var matched = true;
+                switch ( code[pc] ) {
+                    case CHAR -> {
+                        char c;
+                        if ( pos < length && ( ( c = text.charAt( pos ) ) < 128
+                                ? ( code[pc + 1 + ( c >> 5 )] & ( 1 << c ) ) != 0
+                                : ( ( CharPredicate ) constants[code[pc + 5]] ).test( c ) ) ) {
+                            push( c );
+                            pos++;
+                            pc += 7;
+                        } else matched = unexpected( ( String ) constants[code[pc + 6]], pos );
+                    }
+                    case SATISFY -> {
+                        char c;
+                        if ( pos < length && ( ( c = text.charAt( pos ) ) < 128
+                                ? ( code[pc + 1 + ( c >> 5 )] & ( 1 << c ) ) != 0
+                                : ( ( Function<Character, Boolean> ) constants[code[pc + 5]] ).apply( c ) ) ) {
+                            push( c );
+                            pos++;
+                            pc += 7;
+                        } else matched = unexpected( ( String ) constants[code[pc + 6]], pos );
+                    }
+                    case SPAN -> {
+                        var end = ( ( CharClass ) constants[code[pc + 1]] ).span( text, pos, length );
+                        var label = ( String ) constants[code[pc + 4]];
+                        if ( end - pos < code[pc + 2] ) {
+                            matched = unexpected( label, pos );
+                        } else {
+                            var taken = TAKES[code[pc + 3]].of( text, pos, end );
+                            if ( taken == null ) {
+                                matched = fail( label, ParserNode.Span.Take.TOO_LARGE, pos );
+                            } else {
+                                // the run ends where the next one wasn't in the class, like a loop over a char test fails
+                                if ( end >= context.farthestOffset() ) context.expect( stepperAt( end ), UNKNOWN.equals( label ) ? null : label );
+                                push( taken );
+                                pos = end;
+                                pc += 5;
+                            }
+                        }
+                    }
+                    case LITERAL -> {
+                        var literal = ( String ) constants[code[pc + 1]];
+                        var end = Literals.match( literal, ( String ) constants[code[pc + 2]], input, pos );
+                        if ( end < 0 ) {
+                            matched = fail( ( String ) constants[code[pc + 2]], null, ~end );
+                        } else {
+                            push( literal );
+                            pos = end;
+                            pc += 3;
+                        }
+                    }
+                    case LITERALS -> {
+                        var literals = ( Literals ) constants[code[pc + 1]];
+                        var index = literals.match( input, pos );
+                        if ( index < 0 ) {
+                            matched = fail( ( String ) constants[code[pc + 3]], null, ~index );
+                        } else {
+                            push( ( ( List<?> ) constants[code[pc + 2]] ).get( index ) );
+                            pos += literals.literal( index ).length();
+                            pc += 4;
+                        }
+                    }
+                    case DISPATCH -> {
+                        var dispatch = ( Dispatch ) constants[code[pc + 1]];
+                        pc = code[pc + 2 + dispatch.start( text, pos )];
+                    }
+                    case MARK -> {
+                        push( pos );
+                        pc += 1;
+                    }
+                    case SLICE -> {
+                        sp--;
+                        values[sp - 1] = Slice.of( text, ( Integer ) values[sp - 1], pos );
+                        pc += 1;
+                    }
+                    case PUSH -> {
+                        push( constants[code[pc + 1]] );
+                        pc += 2;
+                    }
+                    case ACTION1 -> {
+                        values[sp - 1] = ( ( Function<Object, Object> ) constants[code[pc + 1]] ).apply( values[sp - 1] );
+                        pc += 2;
+                    }
+                    case ACTION2 -> {
+                        var second = values[--sp];
+                        values[sp - 1] = ( ( BiFunction<Object, Object, Object> ) constants[code[pc + 1]] ).apply( values[sp - 1], second );
+                        pc += 2;
+                    }
+                    case POP -> {
+                        sp--;
+                        pc += 1;
+                    }
+                    case LIST_NEW -> {
+                        push( new ArrayList<>() );
+                        pc += 1;
+                    }
+                    case LIST_ADD -> {
+                        var value = values[--sp];
+                        ( ( List<Object> ) values[sp - 1] ).add( value );
+                        pc += 1;
+                    }
+                    case COLLECT_NEW -> {
+                        push( ( ( Collector<?, ?, ?> ) constants[code[pc + 1]] ).supplier().get() );
+                        pc += 2;
+                    }
+                    case COLLECT_ADD -> {
+                        var value = values[--sp];
+                        var at = ( Integer ) values[--sp];
+                        try {
+                            ( ( Collector<Object, Object, ?> ) constants[code[pc + 1]] ).accumulator().accept( values[sp - 1], value );
+                            pc += 3;
+                        } catch ( Rejection rejection ) {
+                            matched = reject( ( String ) constants[code[pc + 2]], rejection.getMessage(), at );
+                        }
+                    }
+                    case COLLECT_END -> {
+                        values[sp - 1] = ( ( Collector<?, Object, ?> ) constants[code[pc + 1]] ).finisher().apply( values[sp - 1] );
+                        pc += 2;
+                    }
+                    case CHOICE -> {
+                        enter( ALTERNATIVE, code[pc + 1], 0, pos );
+                        pc += 2;
+                    }
+                    case COMMIT -> {
+                        bsp--;
+                        pc = code[pc + 1];
+                    }
+                    case PARTIAL_COMMIT -> {
+                        var top = bsp - 1;
+                        if ( positions[top] == pos ) { // nothing consumed, would loop forever
+                            bsp--;
+                            pc += 2;
+                        } else {
+                            positions[top] = pos;
+                            valueDepths[top] = sp;
+                            pc = code[pc + 1];
+                        }
+                    }
+                    case BACK_COMMIT -> {
+                        bsp--;
+                        pos = positions[bsp];
+                        sp = valueDepths[bsp];
+                        pc = code[pc + 1];
+                    }
+                    case JUMP -> pc = code[pc + 1];
+                    case LABEL -> {
+                        enter( EXPECTATION, code[pc + 1], context.expectationMark( pos ), pos );
+                        pc += 2;
+                    }
+                    case NAME -> {
+                        enter( NAMED, code[pc + 1], 0, pos );
+                        pc += 2;
+                    }
+                    case END_REGION -> {
+                        bsp--;
+                        pc += 1;
+                    }
+                    case REQUIRE_HITS -> {
+                        if ( ( ( List<?> ) values[sp - 1] ).isEmpty() ) {
+                            matched = fail( ( String ) constants[code[pc + 1]], ( String ) constants[code[pc + 2]], pos );
+                        } else pc += 3;
+                    }
+                    case REQUIRE_PROGRESS -> {
+                        if ( ( Integer ) values[sp - 2] == pos ) {
+                            matched = fail( ( String ) constants[code[pc + 1]], ( String ) constants[code[pc + 2]], pos );
+                        } else {
+                            values[sp - 2] = values[sp - 1];
+                            sp--;
+                            pc += 3;
+                        }
+                    }
+                    case END -> {
+                        if ( pos + 1 < length ) {
+                            if ( pos >= context.farthestOffset() ) context.expect( stepperAt( pos ), "end of input" );
+                            matched = fail( "?end", "there is more input", pos );
+                        } else {
+                            push( true );
+                            pc += 1;
+                        }
+                    }
+                    case CALL_PARSER -> {
+                        var parser = ( Parser<Character, Object> ) constants[code[pc + 1]];
+                        switch ( parser.parse( input.at( pos ) ) ) {
+                            case Result.Success<Tuple2<Object, IStepper<Character>>, ParseFailure> success -> {
+                                push( success.value().v0 );
+                                pos = ( int ) success.value().v1.getOffset();
+                                pc += 2;
+                            }
+                            case Result.Failure<Tuple2<Object, IStepper<Character>>, ParseFailure> failed -> {
+                                failure = failed.value();
+                                failLabel = failure.label();
+                                failPos = ( int ) failure.offset();
+                                matched = false;
+                            }
+                        }
+                    }
+                    case CALL -> {
+                        if ( csp == calls.length ) calls = Arrays.copyOf( calls, csp * 2 );
+                        calls[csp++] = pc + 2;
+                        pc = code[pc + 1];
+                    }
+                    case RETURN -> pc = calls[--csp];
+                    case CUT -> {
+                        context.commit( pos );
+                        pc += 1;
+                    }
+                    case HALT -> {
+                        return success( Tuples.of( values[sp - 1], input.at( pos ) ) );
+                    }
+                    default -> throw new IllegalStateException( "Unknown instruction " + code[pc] + " at " + pc );
+                }
+                if ( !matched ) {
+                    if ( ( pc = backtrack() ) < 0 ) return failure( failureAt() );
+                    pos = this.pos;
+                }
+            }
+        }
+
+        private void push( Object value ) {
+            if ( sp == values.length ) values = Arrays.copyOf( values, sp * 2 );
+            values[sp++] = value;
+        }
+
+        private void enter( int kind, int target, int mark, int pos ) {
+            if ( bsp == kinds.length ) {
+                var size = bsp * 2;
+                kinds = Arrays.copyOf( kinds, size );
+                targets = Arrays.copyOf( targets, size );
+                positions = Arrays.copyOf( positions, size );
+                valueDepths = Arrays.copyOf( valueDepths, size );
+                callDepths = Arrays.copyOf( callDepths, size );
+                marks = Arrays.copyOf( marks, size );
+            }
+            kinds[bsp] = kind;
+            targets[bsp] = target;
+            positions[bsp] = pos;
+            valueDepths[bsp] = sp;
+            callDepths[bsp] = csp;
+            marks[bsp] = mark;
+            bsp++;
+        }
+
+        private boolean unexpected( String label, int pos ) {
+            if ( pos >= context.farthestOffset() ) context.expect( stepperAt( pos ), UNKNOWN.equals( label ) ? null : label );
+            return fail( label, null, pos );
+        }
+
+        /**
+         * Fails on the hit from at to pos the collector rejected, committing to its end so the failure stays there.
+         */
+        private boolean reject( String label, String message, int at ) {
+            context.commit( pos );
+            fail( label, message, at );
+            failure = ParseFailure.rejected( label, message, stepperAt( at ) );
+            return false;
+        }
+
+        private boolean fail( String label, String message, int pos ) {
+            failure = null;
+            failPos = pos;
+            failLabel = label;
+            failMessage = message;
+            return false;
+        }
+
+        /**
+         * Unwinds to the last alternative not cut off, returning where it continues with its position in {@link #pos}, -1 if there is none.
+         */
+        private int backtrack() {
+            while ( bsp > 0 ) {
+                bsp--;
+                switch ( kinds[bsp] ) {
+                    case ALTERNATIVE -> {
+                        if ( context.committedPast( positions[bsp] ) ) continue;
+                        pos = positions[bsp];
+                        sp = valueDepths[bsp];
+                        csp = callDepths[bsp];
+                        return targets[bsp];
+                    }
+                    case EXPECTATION -> {
+                        failLabel = ( String ) constants[targets[bsp]];
+                        var start = positions[bsp];
+                        if ( failPos == start && start >= context.farthestOffset() )
+                            context.expect( stepperAt( start ), failLabel, marks[bsp] );
+                    }
+                    default -> failLabel = ( String ) constants[targets[bsp]];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Expectations are mostly recorded at the farthest failure again, which already has a stepper.
+         */
+        private IStepper<?> stepperAt( int offset ) {
+            var farthest = context.farthestFailure();
+            if ( farthest != null && farthest.getOffset() == offset ) return farthest;
+            return input.at( offset );
+        }
+
+        private ParseFailure failureAt() {
+            if ( failure != null ) return failure.withLabel( failLabel );
+            if ( failMessage != null ) return ParseFailure.of( failLabel, failMessage, input.at( failPos ) );
+            return ParseFailure.unexpected( failLabel, input.at( failPos ) );
+        }
+    }
+}
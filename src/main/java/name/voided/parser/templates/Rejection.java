@@ -0,0 +1,14 @@
+package name.voided.parser.templates;
+
+/**
+ * Thrown by the accumulator of a collector a parser collects into to refuse a hit, see {@link Parser#sepBy(Parser, java.util.stream.Collector)}.
+ * <p>
+ * The parse then fails at the start of the hit with the message, and nothing backtracks over it.
+ */
+final public class Rejection extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public Rejection( String message ) {
+        super( message );
+    }
+}
@@ -0,0 +1,120 @@
+package name.voided.datatypes;
+
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.ParseFailure;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static name.voided.parser.FluentParser.formatResult;
+import static name.voided.parser.FluentParser.toStepper;
+import static name.voided.parser.JsonParser.jsonValue;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileStepperTest {
+    // one, two, three and four bytes a character, the last as two surrogates
+    private static final String TEXT = "a\u00e9\u20ac\ud83d\ude00 line\nb\u00e9\u00e9\u20ac\u20ac\ud83d\ude00\ud83d\ude00\nend \u00ff";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsWhatTheTextHasInAnyWindow() throws IOException {
+        var file = write( TEXT.repeat( 3 ) );
+        for ( var window = 4; window <= 16; window++ ) {
+            IStepper<Character> mapped = new MappedFileStepper( file, '\n', window );
+            IStepper<Character> text = toStepper( TEXT.repeat( 3 ) );
+            while ( text.hasContent() ) {
+                assertSame( text, mapped, window );
+                text = text.step();
+                mapped = mapped.step();
+            }
+            assertSame( text, mapped, window );
+        }
+    }
+
+    @Test
+    void parsesLikeTheText() throws IOException {
+        var document = "{\"\u00e9\": [1, \"\u20ac\ud83d\ude00\", {\"\ud83d\ude00\u00e9\": true}], \"b\": [\"\u00ff\u00ff\u00ff\", -2.5e3]} ";
+        var file = write( document );
+        var expected = jsonValue().parse( toStepper( document ) );
+        for ( var window = 4; window <= 16; window++ ) {
+            var stepper = new MappedFileStepper( file, '\n', window );
+            assertEquals( describe( expected ), describe( jsonValue().parse( stepper ) ), "window " + window );
+        }
+        var broken = document.replace( "true", "tru" );
+        assertEquals( describe( jsonValue().parse( toStepper( broken ) ) ), describe( jsonValue().parse( new MappedFileStepper( write( broken ), '\n', 5 ) ) ) );
+    }
+
+    @Test
+    void steppersFarApartInTurn() throws IOException {
+        var content = TEXT.repeat( 40 );
+        var file = write( content );
+        var text = new ArrayList<IStepper<Character>>();
+        var mapped = new ArrayList<IStepper<Character>>();
+        IStepper<Character> t = toStepper( content );
+        IStepper<Character> m = new MappedFileStepper( file, '\n', 8 );
+        // more steppers than windows, each in a different part of the file
+        for ( var i = 0; i < content.length(); i++ ) {
+            if ( i % ( content.length() / 6 ) == 0 ) {
+                text.add( t );
+                mapped.add( m );
+            }
+            t = t.step();
+            m = m.step();
+        }
+        for ( var round = 0; round < 20; round++ ) {
+            for ( var i = 0; i < text.size(); i++ ) {
+                assertSame( text.get( i ), mapped.get( i ), 8 );
+                text.set( i, text.get( i ).step() );
+                mapped.set( i, mapped.get( i ).step() );
+            }
+        }
+    }
+
+    @Test
+    void theFileIsClosedWhenTheRunEnds() throws IOException {
+        var document = "[" + "\"\u20ac\", ".repeat( 20 ) + "1]";
+        var stepper = new MappedFileStepper( write( document ), '\n', 8 );
+        assertFalse( stepper.isFileOpen() );
+
+        // outside of a run nothing ends it, the file stays open
+        IStepper<Character> end = stepper;
+        while ( end.hasContent() ) end = end.step();
+        assertTrue( stepper.isFileOpen() );
+
+        var first = describe( jsonValue().parse( stepper ) );
+        assertFalse( stepper.isFileOpen() );
+        assertEquals( first, describe( jsonValue().parse( stepper ) ) );
+        assertFalse( stepper.isFileOpen() );
+        assertEquals( describe( jsonValue().parse( toStepper( document ) ) ), first );
+    }
+
+    private Path write( String text ) throws IOException {
+        var file = Files.createTempFile( directory, "mapped", ".txt" );
+        Files.write( file, text.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+    // the value and where the parse stopped, or the failure as it is reported
+    private static <T> String describe( Result<Tuple2<T, IStepper<Character>>, ParseFailure> result ) {
+        return switch ( result ) {
+            case Result.Success<Tuple2<T, IStepper<Character>>, ParseFailure> success -> formatResult( result ) + " up to " + success.value().v1.getOffset();
+            case Result.Failure<Tuple2<T, IStepper<Character>>, ParseFailure> failure -> formatResult( result );
+        };
+    }
+
+    private static void assertSame( IStepper<Character> text, IStepper<Character> mapped, int window ) {
+        var at = "window " + window + " at " + text.getOffset();
+        assertEquals( text.hasContent(), mapped.hasContent(), at );
+        assertEquals( text.canStep(), mapped.canStep(), at );
+        assertEquals( text.get(), mapped.get(), at );
+        assertEquals( text.getOffset(), mapped.getOffset(), at );
+        assertEquals( text.getPosition(), mapped.getPosition(), at );
+    }
+}
@@ -0,0 +1,50 @@
+package name.voided.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static name.voided.parser.FluentParser.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoTableTest {
+    @Test
+    void backtrackingIntoAMemoizedParserHits() {
+        var a = parseCharacter( 'a' ).memoize();
+        var grammar = a.andThen( parseCharacter( 'x' ) ).orElse( a.andThen( parseCharacter( 'y' ) ) );
+        var stepper = toStepper( "ay" );
+        assertInstanceOf( Result.Success.class, grammar.parse( stepper ) );
+        var memo = stepper.getContext().memo();
+        assertEquals( 1, memo.hits() );
+        assertEquals( 1, memo.misses() );
+    }
+
+    @Test
+    void theNextRunStartsWithAnEmptyTable() {
+        var grammar = parseCharacter( 'a' ).memoize();
+        var stepper = toStepper( "a" );
+        grammar.parse( stepper );
+        grammar.parse( stepper );
+        assertEquals( 0, stepper.getContext().memo().hits() );
+        assertEquals( 1, stepper.getContext().memo().misses() );
+    }
+
+    @Test
+    void clusteredOffsetsEvictHalfTheLimit() {
+        var memo = new MemoTable( 100 );
+        for ( var id = 0; id < 100; id++ ) memo.put( id, 0, "value" );
+        memo.put( 100, 1, "value" );
+        assertEquals( 51, memo.size() );
+        assertEquals( "value", memo.get( 100, 1 ) );
+    }
+
+    @Test
+    void nothingBehindTheCommittedOffsetIsKept() {
+        var memo = new MemoTable( 8 );
+        memo.put( 1, 3, "value" );
+        memo.commit( 5 );
+        memo.put( 2, 4, "value" );
+        assertNull( memo.get( 2, 4 ) );
+        for ( var offset = 5; offset < 13; offset++ ) memo.put( 1, offset, "value" );
+        assertNull( memo.get( 1, 3 ) );
+        assertEquals( "value", memo.get( 1, 12 ) );
+    }
+}
@@ -0,0 +1,92 @@
+package name.voided.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResettableIteratorDecoratorTest {
+    private static ResettableIteratorDecorator<Integer> numbers( int count ) {
+        return new ResettableIteratorDecorator<>( IntStream.range( 0, count ).boxed().iterator() );
+    }
+
+    private static List<Integer> take( ResettableIterator<Integer> iterator, int count ) {
+        var taken = new ArrayList<Integer>();
+        for ( var i = 0; i < count; i++ ) taken.add( iterator.next() );
+        return taken;
+    }
+
+    @Test
+    void resetReplaysFromTheStart() {
+        var iterator = numbers( 5 );
+        take( iterator, 2 );
+        iterator.reset();
+        assertEquals( List.of( 0, 1, 2, 3, 4 ), take( iterator, 5 ) );
+        assertFalse( iterator.hasNext() );
+    }
+
+    @Test
+    void resetReplaysFromWhereTheBufferWasCleared() {
+        var iterator = numbers( 5 );
+        take( iterator, 2 );
+        iterator.clearBuffer();
+        take( iterator, 2 );
+        iterator.reset();
+        assertEquals( List.of( 2, 3, 4 ), take( iterator, 3 ) );
+        assertThrows( IllegalArgumentException.class, () -> iterator.reset( 1 ) );
+    }
+
+    @Test
+    void marksGoBackAndForth() {
+        var iterator = numbers( 10 );
+        take( iterator, 3 );
+        var mark = iterator.mark();
+        assertEquals( 3, mark );
+        take( iterator, 4 );
+        iterator.reset( mark );
+        assertEquals( List.of( 3, 4 ), take( iterator, 2 ) );
+        iterator.reset( 7 );
+        assertEquals( 7, iterator.next() );
+        assertThrows( IllegalArgumentException.class, () -> iterator.reset( 9 ) );
+    }
+
+    @Test
+    void releasingAMarkReleasesTheLaterOnes() {
+        var iterator = ResettableIteratorDecorator.keepingMarked( IntStream.range( 0, 10 ).boxed().iterator() );
+        var first = iterator.mark();
+        take( iterator, 2 );
+        var second = iterator.mark();
+        take( iterator, 2 );
+        iterator.release( first );
+        assertThrows( IllegalArgumentException.class, () -> iterator.release( second ) );
+        take( iterator, 1 );
+        assertThrows( IllegalArgumentException.class, () -> iterator.reset( 2 ) );
+    }
+
+    @Test
+    void keepingMarkedDropsWhatNoMarkHolds() {
+        var iterator = ResettableIteratorDecorator.keepingMarked( IntStream.range( 0, 100 ).boxed().iterator() );
+        take( iterator, 50 );
+        var mark = iterator.mark();
+        take( iterator, 10 );
+        assertThrows( IllegalArgumentException.class, () -> iterator.reset( 49 ) );
+        iterator.reset( mark );
+        assertEquals( 50, iterator.next() );
+    }
+
+    @Test
+    void theBufferGrowsAroundItsEnd() {
+        var iterator = ResettableIteratorDecorator.keepingMarked( IntStream.range( 0, 1000 ).boxed().iterator() );
+        take( iterator, 10 );
+        // the ring has wrapped before it has to grow
+        var mark = iterator.mark();
+        assertEquals( IntStream.range( 10, 110 ).boxed().toList(), take( iterator, 100 ) );
+        iterator.reset( mark );
+        assertEquals( IntStream.range( 10, 1000 ).boxed().toList(), take( iterator, 990 ) );
+        iterator.reset( mark );
+        assertEquals( 10, iterator.next() );
+    }
+}
@@ -0,0 +1,190 @@
+package name.voided.parser;
+
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.ImmutableStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.ParseFailure;
+import name.voided.parser.templates.Parser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Stream;
+
+import static name.voided.parser.FluentParser.*;
+import static name.voided.parser.JsonParser.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Parses valid and invalid input with the parser functions, {@link Parser#compile()} and {@link Parser#compileToBytecode()}:
+ * all three have to give the same value and stop at the same place, or fail with the same message at the same place.
+ */
+class BackendsTest {
+    private static final List<String> DOCUMENTS = List.of(
+            "{\"a\": [1, 2.5, -0, 1e3, -1.5E-2, true, false, null], \"b\": {\"c\": \"\\u0041\\n\", \"d\": []}}",
+            "[]", "{}", "[[[[]]]]", "\"\"", "0", "-12.5e3", "123456789012", "[1]xy", "[1, 2 ]  ",
+            "", "[", "[1,]", "[1 2]", "{\"a\":1,}", "{\"a\" 1}", "{a:1}", "\"abc", "\"\\x\"", "\"\\u12\"", "tru", "nul", "-",
+            "1e", "1e+", "1.", "[1e]", "[1.e3]", "01", "[\u0661]", "{\"a\":1,\"a\":2}", "[{\"a\":{\"b\":1,\"b\":2}}]", "{\"a\":1,\"\\u0061\":2}",
+            "[1,\f2]", "[tru]", "[\u2028 1, \"\u00e9\"]", "[\"\u00e9x\" 1]", "[1.5x]", "[1ex]" );
+
+    private static final Map<String, Parser<Character, ?>> GRAMMARS = Map.of(
+            "jsonValue", jsonValue(),
+            "jsonValue LONG", jsonValue( Numbers.LONG ),
+            "jsonValue RAW", jsonValue( Numbers.RAW ),
+            "jsonValue FIRST", jsonValue( Numbers.DOUBLE, KeyInterner.shared(), Duplicates.FIRST ),
+            "jsonValue LAST", jsonValue( Numbers.DOUBLE, KeyInterner.shared(), Duplicates.LAST ),
+            "streamingJsonValue", streamingJsonValue() );
+
+    static Stream<Arguments> documents() {
+        return GRAMMARS.entrySet().stream()
+                .flatMap( grammar -> DOCUMENTS.stream().map( document -> Arguments.of( grammar.getKey(), grammar.getValue(), document ) ) );
+    }
+
+    @ParameterizedTest( name = "{0} on {2}" )
+    @MethodSource( "documents" )
+    void jsonGrammars( String name, Parser<Character, ?> grammar, String document ) {
+        assertSameResults( grammar, document );
+        var expected = value( grammar.parse( toStepper( document ) ) );
+        assertEquals( expected, value( grammar.compile().parse( toStepper( document ) ) ) );
+        assertEquals( expected, value( grammar.compileToBytecode().parse( toStepper( document ) ) ) );
+    }
+
+    @Test
+    void utf8Grammar() {
+        for ( var document : DOCUMENTS ) {
+            var encoded = document.getBytes( StandardCharsets.UTF_8 );
+            var bytes = JsonUtf8Parser.jsonValue().parse( toStepper( ByteBuffer.wrap( encoded ) ) );
+            assertEquals( outcome( jsonValue().parse( toStepper( document ) ), offset -> offset ),
+                    outcome( bytes, offset -> new String( encoded, 0, ( int ) offset, StandardCharsets.UTF_8 ).length() ), document );
+        }
+    }
+
+    @ParameterizedTest( name = "{0}" )
+    @EnumSource( Duplicates.class )
+    void tape( Duplicates duplicates ) {
+        var grammar = jsonValue( Numbers.DOUBLE, KeyInterner.shared(), duplicates );
+        var tape = JsonTape.jsonTape( duplicates ).map( parsed -> parsed.value( JsonTape.ROOT ) );
+        for ( var document : DOCUMENTS ) {
+            var expected = outcome( grammar.parse( toStepper( document ) ), offset -> offset );
+            assertEquals( expected, outcome( tape.parse( toStepper( document ) ), offset -> offset ), document );
+            assertEquals( expected, outcome( tape.parse( new ImmutableStepper<>( characters( document ).iterator(), '\n' ) ), offset -> offset ), document );
+        }
+    }
+
+    @Test
+    void backtrackingAroundValues() {
+        var either = jsonValue().andThen( parseCharacter( 'x' ) ).orElse( jsonValue().andThen( parseCharacter( 'y' ) ) );
+        assertSameResults( either, "[1,2]x" );
+        assertSameResults( either, "[1,2]y" );
+        assertSameResults( either, "[1,2]z" );
+        var optionalFirst = optional( jsonValue().andThen( parseCharacter( 'x' ) ) ).andThen( jsonValue() );
+        assertSameResults( optionalFirst, "[1]" );
+        assertSameResults( optionalFirst, "[1]x[2]" );
+        var streaming = streamingJsonValue().orElse( jsonValue() );
+        assertSameResults( streaming, "[1, x]" );
+        assertSameResults( streaming, "{\"a\":1,\"a\":2}" );
+    }
+
+    @Test
+    void until() {
+        var optionalBody = FluentParser.until( optional( parseCharacter( 'a' ) ), parseCharacter( ';' ) );
+        for ( var input : List.of( "aa;", ";", "ab;", "aab" ) ) assertSameResults( optionalBody, input );
+        var anything = FluentParser.until( parseAny(), parseCharacter( ';' ) ).andThen( isEnd() );
+        for ( var input : List.of( "abc;", "abc", ";x" ) ) assertSameResults( anything, input );
+    }
+
+    @Test
+    void digits() {
+        var digits = parseDigits().andThen( parseCharacter( ';' ) );
+        for ( var input : List.of( "0;", "0123;", "\u06634;", ";", "12x", "2147483647;", "2147483648;", "99999999999;" ) ) assertSameResults( digits, input );
+        assertEquals( 2147483647, value( parseDigits().parse( toStepper( "2147483647;" ) ) ) );
+        assertEquals( null, value( parseDigits().parse( new ImmutableStepper<>( characters( "2147483648" ).iterator(), '\n' ) ) ) );
+        var tooLarge = assertInstanceOf( Result.Failure.class, digits.parse( toStepper( "2147483648;" ) ) );
+        assertEquals( "Too large for an int", ( ( ParseFailure ) tooLarge.value() ).farthest().message() );
+    }
+
+    @Test
+    void integers() {
+        var integer = parseInteger().andThen( isEnd() ).map( parsed -> parsed.v0 );
+        for ( var input : List.of( "-12", "12", "0", "-", "12x", "2147483647", "-2147483647", "2147483648" ) ) assertSameResults( integer, input );
+        assertEquals( -12, value( integer.parse( toStepper( "-12" ) ) ) );
+        assertEquals( 2147483647, value( integer.parse( toStepper( "2147483647" ) ) ) );
+        assertEquals( null, value( integer.parse( toStepper( "2147483648" ) ) ) );
+    }
+
+    @Test
+    void parsingTheSameInputAgain() {
+        for ( var parser : backends( jsonValue() ) ) {
+            var stepper = toStepper( "[1,2]" );
+            assertEquals( describe( parser.parse( stepper ) ), describe( parser.parse( stepper ) ) );
+            var failing = toStepper( "[1, 2, 3, x]" );
+            parser.parse( failing );
+            assertEquals( "Error parsing 'q' at Position{line=0, column=0}\n\tUnexpected '[', expected q",
+                    formatResult( parseCharacter( 'q' ).parse( failing ) ).replace( System.lineSeparator(), "\n" ) );
+        }
+        var pair = parseCharacter( 'a' ).andThen( parseCharacter( 'b' ) );
+        var elements = new ImmutableStepper<>( characters( "abab" ).iterator(), '\n' );
+        assertEquals( describe( pair.parse( elements ) ), describe( pair.parse( elements ) ) );
+        var document = new ImmutableStepper<>( characters( "[1, {\"a\": [true]}]" ).iterator(), '\n' );
+        var first = describe( jsonValue().parse( document ) );
+        assertEquals( first, describe( jsonValue().parse( document ) ) );
+        assertEquals( describe( jsonValue().parse( toStepper( "[1, {\"a\": [true]}]" ) ) ), first );
+    }
+
+    @Test
+    void repeatedKeyFailsAtTheKey() {
+        for ( var parser : backends( jsonValue() ) ) {
+            var result = parser.parse( toStepper( "[1, {\"a\":1, \"a\":2}]" ) );
+            var failure = assertInstanceOf( Result.Failure.class, result );
+            var farthest = ( ( ParseFailure ) failure.value() ).farthest();
+            assertEquals( 12, farthest.offset() );
+            assertEquals( "Duplicate key a", farthest.message() );
+        }
+    }
+
+    private static <T> void assertSameResults( Parser<Character, T> parser, String input ) {
+        var expected = describe( parser.parse( toStepper( input ) ) );
+        assertEquals( expected, describe( parser.compile().parse( toStepper( input ) ) ), "compile() on " + input );
+        assertEquals( expected, describe( parser.compileToBytecode().parse( toStepper( input ) ) ), "compileToBytecode() on " + input );
+    }
+
+    static List<Character> characters( String text ) {
+        return text.chars().mapToObj( c -> ( char ) c ).toList();
+    }
+
+    private static <T> List<Parser<Character, T>> backends( Parser<Character, T> parser ) {
+        return List.of( parser, parser.compile(), parser.compileToBytecode() );
+    }
+
+    // the value and where the parse stopped, or the failure as it is reported
+    private static <T> String describe( Result<Tuple2<T, IStepper<Character>>, ParseFailure> result ) {
+        return switch ( result ) {
+            case Result.Success<Tuple2<T, IStepper<Character>>, ParseFailure> success -> formatResult( result ) + " up to " + success.value().v1.getOffset();
+            case Result.Failure<Tuple2<T, IStepper<Character>>, ParseFailure> failure -> formatResult( result );
+        };
+    }
+
+    // the value and the offset the parse stopped at, or the farthest failure, with offsets told in characters
+    private static <TIn, T> String outcome( Result<Tuple2<T, IStepper<TIn>>, ParseFailure> result, LongUnaryOperator characters ) {
+        return switch ( result ) {
+            case Result.Success<Tuple2<T, IStepper<TIn>>, ParseFailure> success -> success.value().v0 + " up to " + characters.applyAsLong( success.value().v1.getOffset() );
+            case Result.Failure<Tuple2<T, IStepper<TIn>>, ParseFailure> failure -> {
+                var farthest = failure.value().farthest();
+                yield farthest.message() + " at " + characters.applyAsLong( farthest.offset() ) + ", " + farthest.position();
+            }
+        };
+    }
+
+    private static <T> T value( Result<Tuple2<T, IStepper<Character>>, ParseFailure> result ) {
+        return result instanceof Result.Success<Tuple2<T, IStepper<Character>>, ParseFailure> success ? success.value().v0 : null;
+    }
+}
@@ -0,0 +1,102 @@
+package name.voided.parser;
+
+import name.voided.datatypes.ImmutableStepper;
+import name.voided.datatypes.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static name.voided.parser.BackendsTest.characters;
+import static name.voided.parser.FluentParser.formatResult;
+import static name.voided.parser.FluentParser.toStepper;
+import static name.voided.parser.JsonParser.jsonValue;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonEventParserTest {
+    private static final class Events implements JsonHandler {
+        private final List<String> seen = new ArrayList<>();
+
+        @Override
+        public void startObject() {
+            seen.add( "{" );
+        }
+
+        @Override
+        public void key( String key ) {
+            seen.add( key + ":" );
+        }
+
+        @Override
+        public void endObject() {
+            seen.add( "}" );
+        }
+
+        @Override
+        public void startArray() {
+            seen.add( "[" );
+        }
+
+        @Override
+        public void endArray() {
+            seen.add( "]" );
+        }
+
+        @Override
+        public void string( String value ) {
+            seen.add( '"' + value + '"' );
+        }
+
+        @Override
+        public void number( double value ) {
+            seen.add( String.valueOf( value ) );
+        }
+
+        @Override
+        public void bool( boolean value ) {
+            seen.add( String.valueOf( value ) );
+        }
+
+        @Override
+        public void nullValue() {
+            seen.add( "null" );
+        }
+    }
+
+    @Test
+    void eventsInDocumentOrder() {
+        var events = new Events();
+        var result = new JsonEventParser( events ).parse( "{\"a\": [1, \"x]\", true], \"b\": {\"c\": null}}" );
+
+        assertInstanceOf( Result.Success.class, result, formatResult( result ) );
+        assertEquals( List.of( "{", "a:", "[", "1.0", "\"x]\"", "true", "]", "b:", "{", "c:", "null", "}", "}" ), events.seen );
+    }
+
+    @Test
+    void failsWhereTheGrammarFails() {
+        for ( var document : List.of( "[1, x]", "{\"a\" 1}", "[1, 2", "{\"a\": [tru]}", "[1,]" ) ) {
+            var events = new JsonEventParser( new JsonHandler() {
+            } ).parse( document );
+            assertEquals( where( formatResult( jsonValue().parse( toStepper( document ) ) ) ), where( formatResult( events ) ), document );
+        }
+    }
+
+    // the failure without the description of the parser, which differs between the grammars
+    private static String where( String failure ) {
+        return failure.replaceFirst( "Error parsing '.*' at", "at" );
+    }
+
+    @Test
+    void iteratorInputBeforeTheLastElementIsLetGo() {
+        var document = IntStream.range( 0, 1000 ).mapToObj( String::valueOf ).collect( Collectors.joining( ", ", "[", "]" ) );
+        var first = new ImmutableStepper<>( characters( document ).iterator(), '\n' );
+        var events = new Events();
+        var result = new JsonEventParser( events ).parse( first );
+
+        assertInstanceOf( Result.Success.class, result, formatResult( result ) );
+        assertEquals( 1002, events.seen.size() );
+        assertThrows( IllegalStateException.class, first::step );
+    }
+}
@@ -0,0 +1,97 @@
+package name.voided.parser;
+
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.ImmutableStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.ParseFailure;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static name.voided.parser.BackendsTest.characters;
+import static name.voided.parser.FluentParser.formatResult;
+import static name.voided.parser.FluentParser.toStepper;
+import static name.voided.parser.JsonParser.*;
+import static name.voided.parser.JsonProjection.jsonProjection;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonProjectionTest {
+    private static final String WIDGET = "{\"widget\": {\"debug\": \"on\", \"window\": {\"title\": \"Sample\", \"width\": 500},"
+            + " \"tags\": [\"a]\", {\"b\": \"}{\"}, \"c\\\"]\"], \"k\": 1, \"k\": 2}, \"escaped\\u0021\": true, \"it's\": null}";
+
+    @Test
+    void pathsInDocumentOrder() {
+        var found = project( WIDGET, "$.widget.k", "$.widget.window.width", "$['widget'][\"debug\"]", "$.widget.tags[1].b" );
+
+        assertEquals( List.of( "$['widget'][\"debug\"]", "$.widget.window.width", "$.widget.tags[1].b", "$.widget.k" ), List.copyOf( found.keySet() ) );
+        assertEquals( new JsonString( "on" ), found.get( "$['widget'][\"debug\"]" ) );
+        assertEquals( new JsonNumber( 500 ), found.get( "$.widget.window.width" ) );
+        assertEquals( new JsonString( "}{" ), found.get( "$.widget.tags[1].b" ) );
+        assertEquals( new JsonNumber( 2 ), found.get( "$.widget.k" ) );
+    }
+
+    @Test
+    void escapedAndQuotedKeys() {
+        var found = project( WIDGET, "$.escaped!", "$[\"it's\"]", "$.widget.tags[2]" );
+
+        assertEquals( JsonBool.TRUE, found.get( "$.escaped!" ) );
+        assertEquals( JsonNull.NULL, found.get( "$[\"it's\"]" ) );
+        assertEquals( new JsonString( "c\"]" ), found.get( "$.widget.tags[2]" ) );
+    }
+
+    @Test
+    void missingPathsAreLeftOut() {
+        var found = project( WIDGET, "$.nope", "$.widget.tags[3]", "$.widget.debug.deeper", "$.widget.window.title" );
+
+        assertEquals( Map.of( "$.widget.window.title", new JsonString( "Sample" ) ), found );
+    }
+
+    @Test
+    void valuesOnThePathKeepTheLastOfARepeatedKey() {
+        var found = project( "{\"a\": {\"k\": 1, \"k\": 2}}", "$.a" );
+
+        assertEquals( new JsonObject( Map.of( "k", new JsonNumber( 2 ) ) ), found.get( "$.a" ) );
+    }
+
+    @Test
+    void iteratorInputGivesWhatTextDoes() {
+        var paths = new String[]{ "$.widget.k", "$.widget.tags[0]", "$['widget'].window", "$.nope" };
+        for ( var document : List.of( WIDGET, "[1, 2]", "{\"a\": [1,}", "{\"k\": 1, \"k\": 2} x" ) ) {
+            var projection = jsonProjection( paths );
+            assertEquals( describe( projection.parse( toStepper( document ) ) ),
+                    describe( projection.parse( new ImmutableStepper<>( characters( document ).iterator(), '\n' ) ) ), document );
+        }
+    }
+
+    @Test
+    void brokenValueOnThePathFails() {
+        var result = jsonProjection( "$.a" ).parse( toStepper( "{\"a\": [1,}" ) );
+
+        var failure = assertInstanceOf( Result.Failure.class, result );
+        assertEquals( 9, ( ( ParseFailure ) failure.value() ).farthest().offset() );
+    }
+
+    @Test
+    void invalidPaths() {
+        for ( var path : List.of( "widget", "$.", "$[x]", "$[1" ) ) {
+            assertThrows( IllegalArgumentException.class, () -> jsonProjection( path ), path );
+        }
+    }
+
+    private static Map<String, IJsonValue> project( String document, String... paths ) {
+        var result = jsonProjection( paths ).parse( toStepper( document ) );
+        if ( result instanceof Result.Success<Tuple2<Map<String, IJsonValue>, IStepper<Character>>, ParseFailure> success ) return success.value().v0;
+        return fail( formatResult( result ) );
+    }
+
+    // the values found and where the parse stopped, or where it failed and why
+    private static String describe( Result<Tuple2<Map<String, IJsonValue>, IStepper<Character>>, ParseFailure> result ) {
+        return switch ( result ) {
+            case Result.Success<Tuple2<Map<String, IJsonValue>, IStepper<Character>>, ParseFailure> success -> success.value().v0 + " up to " + success.value().v1.getOffset();
+            case Result.Failure<Tuple2<Map<String, IJsonValue>, IStepper<Character>>, ParseFailure> failure ->
+                    failure.value().farthest().message() + " at " + failure.value().farthest().offset();
+        };
+    }
+}
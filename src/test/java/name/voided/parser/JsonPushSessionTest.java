@@ -0,0 +1,91 @@
+package name.voided.parser;
+
+import name.voided.datatypes.IStepper;
+import name.voided.datatypes.Result;
+import name.voided.datatypes.tuple.Tuple2;
+import name.voided.parser.templates.ParseFailure;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static name.voided.parser.JsonParser.jsonValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonPushSessionTest {
+    private static final String STREAM = "{\"a\": [1, \"x]\\\"y\\\\\"]} [2,3]\n\"str\\\"]\" \"\\\\\" 12 true null\t-4.5e1{\"b\": {\"c\": \"}\"}} [1,] [\"\\u0041\"]";
+
+    @Test
+    void valuesSplitAcrossChunks() {
+        var whole = session( List.of( STREAM ) );
+        assertEquals( 11, whole.size() );
+        for ( var i = 0; i <= STREAM.length(); i++ ) {
+            assertEquals( whole, session( List.of( STREAM.substring( 0, i ), STREAM.substring( i ) ) ), "split at " + i );
+        }
+        assertEquals( whole, session( STREAM.chars().mapToObj( c -> String.valueOf( ( char ) c ) ).toList() ) );
+    }
+
+    @Test
+    void valuesComeOutWithTheChunkCompletingThem() {
+        var session = new JsonPushSession<>( jsonValue() );
+
+        assertEquals( List.of(), describe( session.feed( "[\"]\", " ) ) );
+        assertEquals( List.of(), describe( session.feed( "\"\\\"" ) ) );
+        assertEquals( List.of( "JsonArray{values=[JsonString{value=']'}, JsonString{value='\"'}]}" ), describe( session.feed( "\"] [" ) ) );
+        assertEquals( List.of( "JsonArray{values=[]}" ), describe( session.feed( "]" ) ) );
+    }
+
+    @Test
+    void scalarsAreFinishedByWhatFollowsOrByFinish() {
+        var session = new JsonPushSession<>( jsonValue() );
+
+        assertEquals( List.of(), describe( session.feed( "12" ) ) );
+        assertEquals( List.of(), describe( session.feed( "3" ) ) );
+        assertEquals( List.of( "JsonNumber{value=123.0}" ), describe( session.feed( " 4" ) ) );
+        assertEquals( List.of( "JsonNumber{value=4.0}" ), describe( session.finish() ) );
+
+        session.feed( "tru" );
+        assertEquals( List.of( "No more input, expected e" ), describe( session.finish() ) );
+        session.feed( "[1, " );
+        assertEquals( 1, session.finish().size() );
+        assertEquals( List.of(), describe( session.finish() ) );
+    }
+
+    @Test
+    void charactersSplitAcrossByteChunks() {
+        var stream = "[\"\u00e9\u20ac\ud83d\ude00\"] \"\u00ff\" {\"\u20ac\": 1}";
+        var expected = session( List.of( stream ) );
+        var bytes = stream.getBytes( StandardCharsets.UTF_8 );
+        for ( var i = 0; i <= bytes.length; i++ ) {
+            var session = new JsonPushSession<>( jsonValue() );
+            var values = new ArrayList<String>();
+            values.addAll( describe( session.feed( ByteBuffer.wrap( bytes, 0, i ) ) ) );
+            values.addAll( describe( session.feed( ByteBuffer.wrap( bytes, i, bytes.length - i ) ) ) );
+            values.addAll( describe( session.finish() ) );
+            assertEquals( expected, values, "split at byte " + i );
+        }
+        var session = new JsonPushSession<>( jsonValue() );
+        var values = new ArrayList<String>();
+        for ( var b : bytes ) values.addAll( describe( session.feed( ByteBuffer.wrap( new byte[]{ b } ) ) ) );
+        values.addAll( describe( session.finish() ) );
+        assertEquals( expected, values );
+    }
+
+    private static List<String> session( List<String> chunks ) {
+        var session = new JsonPushSession<>( jsonValue() );
+        var values = new ArrayList<String>();
+        for ( var chunk : chunks ) values.addAll( describe( session.feed( chunk ) ) );
+        values.addAll( describe( session.finish() ) );
+        return values;
+    }
+
+    // the values, or the failures as they are reported
+    private static <T> List<String> describe( List<Result<Tuple2<T, IStepper<Character>>, ParseFailure>> results ) {
+        return results.stream().map( result -> switch ( result ) {
+            case Result.Success<Tuple2<T, IStepper<Character>>, ParseFailure> success -> String.valueOf( success.value().v0 );
+            case Result.Failure<Tuple2<T, IStepper<Character>>, ParseFailure> failure -> failure.value().farthest().message();
+        } ).toList();
+    }
+}